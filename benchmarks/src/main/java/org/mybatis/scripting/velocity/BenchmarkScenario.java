@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Representative templates and parameter objects used by the benchmarks.
+ */
+public enum BenchmarkScenario {
+
+  STATIC("SELECT id, firstName, lastName FROM names WHERE id = @{id}", () -> {
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    return param;
+  }),
+
+  WHERE("SELECT id, firstName, lastName FROM names" //
+      + " #where()" //
+      + "  #if($_parameter.id) AND id = @{id} #end" //
+      + "  #if($_parameter.firstName) AND firstName = @{firstName} #end" //
+      + "  #if($_parameter.lastName) AND lastName LIKE @{lastName} #end" //
+      + " #end", BenchmarkScenario::person),
+
+  MSET("UPDATE names" //
+      + " #mset()" //
+      + "  #if($_parameter.firstName) firstName = @{firstName}, #end" //
+      + "  #if($_parameter.lastName) lastName = @{lastName}, #end" //
+      + " #end" //
+      + " WHERE id = @{id}", BenchmarkScenario::person),
+
+  TRIM("SELECT id, firstName, lastName FROM names" //
+      + " #trim('WHERE' 'AND |OR ' '' '')" //
+      + "  #if($_parameter.firstName) OR firstName = @{firstName} #end" //
+      + "  #if($_parameter.lastName) OR lastName = @{lastName} #end" //
+      + " #end", BenchmarkScenario::person),
+
+  IN_10(inScript(), () -> ids(10)),
+
+  IN_1000(inScript(), () -> ids(1000)),
+
+  IN_5000(inScript(), () -> ids(5000)),
+
+  NESTED_REPEAT("INSERT INTO names (id, firstName, lastName)" //
+      + " #repeat($_parameter.rows $row ' UNION ALL ')" //
+      + "  SELECT #repeat($row $cell ', ') @{cell} #end FROM (VALUES(0))" //
+      + " #end", () -> {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+          List<Object> row = new ArrayList<>();
+          row.add(i);
+          row.add("Fred" + i);
+          row.add("Flintstone" + i);
+          rows.add(row);
+        }
+        Map<String, Object> param = new HashMap<>();
+        param.put("rows", rows);
+        return param;
+      });
+
+  private final String script;
+
+  private final Supplier<Object> parameterFactory;
+
+  BenchmarkScenario(String script, Supplier<Object> parameterFactory) {
+    this.script = script;
+    this.parameterFactory = parameterFactory;
+  }
+
+  public String getScript() {
+    return script;
+  }
+
+  public Object createParameter() {
+    return parameterFactory.get();
+  }
+
+  private static String inScript() {
+    return "SELECT id, firstName, lastName FROM names WHERE #in($_parameter.ids $id 'id') @{id} #end";
+  }
+
+  private static Object ids(int size) {
+    List<Integer> ids = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      ids.add(i);
+    }
+    Map<String, Object> param = new HashMap<>();
+    param.put("ids", ids);
+    return param;
+  }
+
+  private static Object person() {
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("firstName", "Fred");
+    param.put("lastName", "Flint%");
+    return param;
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link VelocityFacade#compileTemplate(String, String)} for the @{} rewritten scripts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+
+  @Param({ "STATIC", "WHERE", "MSET", "TRIM", "IN_10", "NESTED_REPEAT" })
+  BenchmarkScenario scenario;
+
+  private VelocityFacade velocityFacade;
+
+  private String sql;
+
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    velocityFacade = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+    sql = new ParameterMappingSourceParser(new Configuration(), scenario.getScript(), Object.class).getSql();
+  }
+
+  @Benchmark
+  public Object compile() {
+    return velocityFacade.compileTemplate(sql, "benchmark-" + (index++));
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link VelocityFacade#applyTemplate(Object, Map)} with the same context entries as {@link SQLScriptSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+  @Param({ "STATIC", "WHERE", "MSET", "TRIM", "IN_10", "IN_1000", "IN_5000", "NESTED_REPEAT" })
+  BenchmarkScenario scenario;
+
+  private VelocityFacade velocityFacade;
+
+  private Configuration configuration;
+
+  private ParameterMapping[] parameterMappingSources;
+
+  private Object template;
+
+  private Object parameter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    velocityFacade = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+    configuration = new Configuration();
+    ParameterMappingSourceParser parser = new ParameterMappingSourceParser(configuration, scenario.getScript(),
+        Object.class);
+    parameterMappingSources = parser.getParameterMappingSources();
+    template = velocityFacade.compileTemplate(parser.getSql(), "benchmark-" + scenario.name());
+    parameter = scenario.createParameter();
+  }
+
+  @Benchmark
+  public String render() {
+    Map<String, Object> context = new HashMap<>();
+    context.put(SQLScriptSource.DATABASE_ID_KEY, configuration.getDatabaseId());
+    context.put(SQLScriptSource.PARAMETER_OBJECT_KEY, parameter);
+    context.put(SQLScriptSource.MAPPING_COLLECTOR_KEY,
+        new ParameterMappingCollector(parameterMappingSources, context, configuration));
+    context.put(SQLScriptSource.VARIABLES_KEY, configuration.getVariables());
+    return velocityFacade.applyTemplate(template, context);
+  }
+
+}
@@ -0,0 +1,243 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Lang;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.maven.plugin.logging.Log;
+import org.mybatis.scripting.velocity.VelocityLanguageDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Finds the statements written in the velocity language, in the mapper XML files and in the annotations of the mapper
+ * interfaces of a classes directory.
+ */
+final class MapperScanner {
+
+  private static final String[] STATEMENTS = { "select", "insert", "update", "delete" };
+
+  private final ClassLoader classLoader;
+  private final Collection<String> languages;
+  private final boolean velocityByDefault;
+  private final Log log;
+
+  /**
+   * Constructor.
+   *
+   * @param classLoader
+   *          the class loader of the project classes
+   * @param languages
+   *          the values of the {@code lang} attribute that designate the velocity language, besides the class name of
+   *          {@link VelocityLanguageDriver}
+   * @param velocityByDefault
+   *          whether the velocity language is the default scripting language
+   * @param log
+   *          the log
+   */
+  MapperScanner(ClassLoader classLoader, Collection<String> languages, boolean velocityByDefault, Log log) {
+    this.classLoader = classLoader;
+    this.languages = languages;
+    this.velocityByDefault = velocityByDefault;
+    this.log = log;
+  }
+
+  List<Statement> scan(File classesDirectory) throws IOException {
+    List<Statement> statements = new ArrayList<>();
+    if (!classesDirectory.isDirectory()) {
+      return statements;
+    }
+    Path root = classesDirectory.toPath();
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(root)) {
+      files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    DocumentBuilder documentBuilder = newDocumentBuilder();
+    for (Path file : files) {
+      String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+      if (path.endsWith(".xml")) {
+        scanXml(documentBuilder, file, path, statements);
+      } else if (path.endsWith(".class") && !path.startsWith("META-INF/")) {
+        scanClass(path.substring(0, path.length() - ".class".length()).replace('/', '.'), statements);
+      }
+    }
+    return statements;
+  }
+
+  /**
+   * Parse like MyBatis does, without loading the DTDs.
+   */
+  private static DocumentBuilder newDocumentBuilder() throws IOException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setValidating(false);
+    factory.setNamespaceAware(false);
+    factory.setIgnoringComments(true);
+    factory.setIgnoringElementContentWhitespace(false);
+    factory.setCoalescing(false);
+    factory.setExpandEntityReferences(true);
+    try {
+      DocumentBuilder builder = factory.newDocumentBuilder();
+      builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+      builder.setErrorHandler(null);
+      return builder;
+    } catch (ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void scanXml(DocumentBuilder documentBuilder, Path file, String path, List<Statement> statements) {
+    Document document;
+    try {
+      document = documentBuilder.parse(file.toFile());
+    } catch (SAXException | IOException e) {
+      this.log.debug("Skipping " + path + ": " + e);
+      return;
+    }
+    Element mapper = document.getDocumentElement();
+    if (!"mapper".equals(mapper.getNodeName())) {
+      return;
+    }
+    NodeList children = mapper.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if (child instanceof Element && isStatement(child.getNodeName())) {
+        Element statement = (Element) child;
+        String name = path + "#" + statement.getAttribute("id");
+        if (!isVelocity(statement.hasAttribute("lang") ? statement.getAttribute("lang") : null)) {
+          continue;
+        }
+        if (hasElements(statement)) {
+          // <include>, <selectKey> and <bind> are processed by MyBatis before the script is known
+          this.log.info(name + " is interpreted: nested elements are not supported");
+          continue;
+        }
+        statements.add(new Statement(name, statement.getTextContent()));
+      }
+    }
+  }
+
+  private static boolean isStatement(String name) {
+    for (String statement : STATEMENTS) {
+      if (statement.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasElements(Element element) {
+    NodeList children = element.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      if (children.item(i) instanceof Element) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isVelocity(String lang) {
+    if (lang == null || lang.isEmpty()) {
+      return this.velocityByDefault;
+    }
+    return this.languages.contains(lang) || VelocityLanguageDriver.class.getName().equals(lang);
+  }
+
+  private void scanClass(String className, List<Statement> statements) {
+    Class<?> type;
+    try {
+      type = Class.forName(className, false, this.classLoader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      this.log.debug("Skipping " + className + ": " + e);
+      return;
+    }
+    if (!type.isInterface()) {
+      return;
+    }
+    for (Method method : type.getDeclaredMethods()) {
+      Lang lang = method.getAnnotation(Lang.class);
+      if (lang == null ? !this.velocityByDefault : !VelocityLanguageDriver.class.isAssignableFrom(lang.value())) {
+        continue;
+      }
+      String name = className + "#" + method.getName();
+      for (Select select : method.getAnnotationsByType(Select.class)) {
+        statements.add(new Statement(name, select.value()));
+      }
+      for (Insert insert : method.getAnnotationsByType(Insert.class)) {
+        statements.add(new Statement(name, insert.value()));
+      }
+      for (Update update : method.getAnnotationsByType(Update.class)) {
+        statements.add(new Statement(name, update.value()));
+      }
+      for (Delete delete : method.getAnnotationsByType(Delete.class)) {
+        statements.add(new Statement(name, delete.value()));
+      }
+    }
+  }
+
+  /**
+   * A statement and its script.
+   */
+  static final class Statement {
+
+    private final String name;
+    private final String script;
+
+    Statement(String name, String script) {
+      this.name = name;
+      this.script = script;
+    }
+
+    /**
+     * Constructor for the lines of an annotation, joined like {@code MapperAnnotationBuilder} does.
+     */
+    Statement(String name, String[] lines) {
+      this(name, String.join(" ", lines).trim());
+    }
+
+    String getName() {
+      return this.name;
+    }
+
+    String getScript() {
+      return this.script;
+    }
+
+  }
+
+}
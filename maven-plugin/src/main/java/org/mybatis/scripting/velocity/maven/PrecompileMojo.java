@@ -0,0 +1,180 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.mybatis.scripting.velocity.UnsupportedTemplateException;
+import org.mybatis.scripting.velocity.VelocityLanguageDriverConfig;
+
+/**
+ * Validates the velocity statements of the mapper XML files and mapper annotations, and generates the renderers that
+ * {@link org.mybatis.scripting.velocity.VelocityLanguageDriver} uses instead of interpreting the scripts.
+ * <p>
+ * The template engine is configured like at runtime, by the {@code mybatis-velocity.properties} file of the project.
+ * </p>
+ */
+@Mojo(name = "precompile", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class PrecompileMojo extends AbstractMojo {
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  /**
+   * The directory of the compiled classes and resources, that is scanned, and where the renderers are compiled.
+   */
+  @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+  private File outputDirectory;
+
+  /**
+   * The directory of the generated sources.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/generated-sources/mybatis-velocity", required = true)
+  private File generatedSourcesDirectory;
+
+  /**
+   * The package of the generated renderers, derived from the project coordinates by default.
+   */
+  @Parameter
+  private String packageName;
+
+  /**
+   * The values of the {@code lang} attribute of the mapper XML files that designate the velocity language (e.g. its
+   * type alias), besides the class name of the language driver.
+   */
+  @Parameter(defaultValue = "velocity")
+  private String[] languages;
+
+  /**
+   * Whether the velocity language driver is the {@code defaultScriptingLanguage} of the MyBatis configuration.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean velocityByDefault;
+
+  /**
+   * Whether an invalid script fails the build, rather than being reported as a warning.
+   */
+  @Parameter(property = "mybatis-velocity.failOnError", defaultValue = "true")
+  private boolean failOnError;
+
+  /**
+   * The Java release the renderers are compiled for.
+   */
+  @Parameter(property = "maven.compiler.release", defaultValue = "11")
+  private String release;
+
+  @Parameter(property = "mybatis-velocity.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (this.skip) {
+      getLog().info("Skipping the precompilation of velocity statements");
+      return;
+    }
+    List<String> classpath;
+    try {
+      classpath = this.project.getCompileClasspathElements();
+    } catch (DependencyResolutionRequiredException e) {
+      throw new MojoExecutionException("Cannot resolve the compile classpath", e);
+    }
+    Thread thread = Thread.currentThread();
+    ClassLoader savedClassLoader = thread.getContextClassLoader();
+    try (URLClassLoader classLoader = new URLClassLoader(toUrls(classpath), getClass().getClassLoader())) {
+      // The configuration, the custom directives and the additional context attributes are loaded from the project
+      thread.setContextClassLoader(classLoader);
+      MapperScanner scanner = new MapperScanner(classLoader, Arrays.asList(this.languages), this.velocityByDefault,
+          getLog());
+      RendererGenerator generator = new RendererGenerator(VelocityLanguageDriverConfig.newInstance(),
+          getPackageName());
+      List<String> errors = new ArrayList<>();
+      int statements = 0;
+      for (MapperScanner.Statement statement : scanner.scan(this.outputDirectory)) {
+        try {
+          if (generator.add(statement.getName(), statement.getScript())) {
+            statements++;
+          }
+        } catch (BuilderException e) {
+          errors.add(statement.getName() + ": " + (e.getCause() == null ? e : e.getCause()).getMessage());
+        } catch (UnsupportedTemplateException e) {
+          getLog().info(statement.getName() + " is interpreted: " + e.getMessage());
+        }
+      }
+      if (!errors.isEmpty()) {
+        if (this.failOnError) {
+          throw new MojoFailureException("Invalid velocity statements:\n" + String.join("\n", errors));
+        }
+        errors.forEach(getLog()::warn);
+      }
+      generator.writeTo(this.generatedSourcesDirectory, this.outputDirectory, classpath, this.release);
+      getLog().info("Generated " + generator.size() + " renderers for " + statements + " velocity statements");
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot precompile the velocity statements", e);
+    } finally {
+      thread.setContextClassLoader(savedClassLoader);
+    }
+  }
+
+  private String getPackageName() {
+    if (this.packageName != null && !this.packageName.isEmpty()) {
+      return this.packageName;
+    }
+    StringBuilder name = new StringBuilder();
+    for (String part : (this.project.getGroupId() + "." + this.project.getArtifactId() + ".velocity").split("\\.")) {
+      StringBuilder identifier = new StringBuilder();
+      for (char c : part.toLowerCase(Locale.ENGLISH).toCharArray()) {
+        identifier.append(Character.isJavaIdentifierPart(c) ? c : '_');
+      }
+      if (identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+        identifier.insert(0, '_');
+      }
+      name.append(name.length() == 0 ? "" : ".").append(identifier);
+    }
+    return name.toString();
+  }
+
+  private static URL[] toUrls(List<String> classpath) throws MojoExecutionException {
+    URL[] urls = new URL[classpath.size()];
+    for (int i = 0; i < urls.length; i++) {
+      try {
+        urls[i] = new File(classpath.get(i)).toURI().toURL();
+      } catch (MalformedURLException e) {
+        throw new MojoExecutionException("Invalid classpath element " + classpath.get(i), e);
+      }
+    }
+    return urls;
+  }
+
+}
@@ -0,0 +1,466 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.mybatis.scripting.velocity.RenderContext;
+import org.mybatis.scripting.velocity.TemplateRendererProvider;
+import org.mybatis.scripting.velocity.TemplateTranslator;
+import org.mybatis.scripting.velocity.UnsupportedTemplateException;
+import org.mybatis.scripting.velocity.VelocityFacade;
+import org.mybatis.scripting.velocity.VelocityLanguageDriverConfig;
+
+/**
+ * Translates velocity scripts to {@link org.mybatis.scripting.velocity.TemplateRenderer}s, and writes them with the
+ * {@link TemplateRendererProvider} that provides them.
+ * <p>
+ * The scripts are translated by the {@link TemplateTranslator} of the runtime, to the Java source of the
+ * {@link RenderContext} operations that have the same semantics as the nodes they are translated from. A script that
+ * uses a construct the translator does not support, or {@code #set}, stays interpreted by Velocity.
+ * </p>
+ */
+final class RendererGenerator {
+
+  static final String PROVIDER_NAME = "VelocityRenderers";
+
+  static final String SERVICE_FILE = "META-INF/services/" + TemplateRendererProvider.class.getName();
+
+  private static final int MAX_SOURCE_LENGTH = 60_000;
+
+  private final VelocityFacade velocityFacade;
+  private final String packageName;
+  private final String unsupportedSettings;
+  private final Map<String, String> renderers = new TreeMap<>();
+  private final Map<String, String> sources = new TreeMap<>();
+
+  RendererGenerator(VelocityLanguageDriverConfig config, String packageName) {
+    this.velocityFacade = new VelocityFacade(config);
+    this.packageName = packageName;
+    this.unsupportedSettings = this.velocityFacade.getRenderersUnsupportedReason();
+  }
+
+  /**
+   * Validate a script and generate its renderer.
+   *
+   * @param name
+   *          the statement name, for messages
+   * @param script
+   *          the velocity script of the statement
+   *
+   * @return {@code false} if the script is static SQL, which is not rendered by Velocity
+   *
+   * @throws org.apache.ibatis.builder.BuilderException
+   *           if the script is invalid
+   * @throws UnsupportedTemplateException
+   *           if the script cannot be translated
+   */
+  boolean add(String name, String script) throws UnsupportedTemplateException {
+    if (TemplateTranslator.isStatic(script)) {
+      return false;
+    }
+    String template = TemplateTranslator.toTemplate(script);
+    Template parsed = this.velocityFacade.parseTemplate(template, name);
+    if (this.unsupportedSettings != null) {
+      throw new UnsupportedTemplateException(this.unsupportedSettings);
+    }
+    String digest = TemplateRendererProvider.digest(template);
+    if (!this.renderers.containsKey(digest)) {
+      String className = "VelocityRenderer_" + digest.substring(0, 16);
+      Translation translation = new Translation(name);
+      String source = translation.toSource(className, TemplateTranslator.translate(parsed, translation));
+      if (source.length() > MAX_SOURCE_LENGTH) {
+        throw new UnsupportedTemplateException("the script is too large");
+      }
+      this.sources.put(className, source);
+      this.renderers.put(digest, className);
+    }
+    return true;
+  }
+
+  /**
+   * Return the number of generated renderers.
+   */
+  int size() {
+    return this.renderers.size();
+  }
+
+  /**
+   * Write the generated sources, compile them, and register the provider.
+   *
+   * @param sourceDirectory
+   *          the directory of the generated sources
+   * @param classesDirectory
+   *          the directory of the compiled classes
+   * @param classpath
+   *          the classpath to compile with
+   * @param release
+   *          the Java release to compile for
+   *
+   * @throws IOException
+   *           if the sources cannot be written or compiled
+   */
+  void writeTo(File sourceDirectory, File classesDirectory, List<String> classpath, String release)
+      throws IOException {
+    String providerClass = this.packageName + "." + PROVIDER_NAME;
+    registerProvider(new File(classesDirectory, SERVICE_FILE), providerClass, !this.renderers.isEmpty());
+    if (this.renderers.isEmpty()) {
+      return;
+    }
+    File packageDirectory = new File(sourceDirectory, this.packageName.replace('.', File.separatorChar));
+    Files.createDirectories(packageDirectory.toPath());
+    List<File> files = new ArrayList<>();
+    this.sources.put(PROVIDER_NAME, providerSource());
+    for (Map.Entry<String, String> source : this.sources.entrySet()) {
+      File file = new File(packageDirectory, source.getKey() + ".java");
+      Files.write(file.toPath(), source.getValue().getBytes(StandardCharsets.UTF_8));
+      files.add(file);
+    }
+    compile(files, classesDirectory, classpath, release);
+  }
+
+  private static void compile(List<File> files, File classesDirectory, List<String> classpath, String release)
+      throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IOException("No Java compiler is available, a JDK is required");
+    }
+    Files.createDirectories(classesDirectory.toPath());
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+        StandardCharsets.UTF_8)) {
+      List<String> options = new ArrayList<>(Arrays.asList("-d", classesDirectory.getPath(), "-classpath",
+          String.join(File.pathSeparator, classpath), "-proc:none", "-encoding", "UTF-8"));
+      if (release != null && !release.isEmpty()) {
+        options.addAll(Arrays.asList("--release", release));
+      }
+      boolean compiled = compiler
+          .getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files))
+          .call();
+      if (!compiled) {
+        throw new IOException("Cannot compile the generated renderers: " + diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR).map(Object::toString).collect(Collectors.joining("\n")));
+      }
+    }
+  }
+
+  private static void registerProvider(File serviceFile, String providerClass, boolean register) throws IOException {
+    List<String> providers = new ArrayList<>();
+    if (serviceFile.isFile()) {
+      for (String line : Files.readAllLines(serviceFile.toPath(), StandardCharsets.UTF_8)) {
+        if (!line.trim().equals(providerClass)) {
+          providers.add(line);
+        }
+      }
+    }
+    if (register) {
+      providers.add(providerClass);
+    }
+    if (providers.stream().allMatch(line -> line.trim().isEmpty())) {
+      Files.deleteIfExists(serviceFile.toPath());
+    } else {
+      Files.createDirectories(serviceFile.getParentFile().toPath());
+      Files.write(serviceFile.toPath(), providers, StandardCharsets.UTF_8);
+    }
+  }
+
+  private String providerSource() {
+    StringBuilder source = new StringBuilder();
+    source.append("// Generated by mybatis-velocity-maven-plugin, do not edit\n");
+    source.append("package ").append(this.packageName).append(";\n\n");
+    source.append("import java.util.HashMap;\n");
+    source.append("import java.util.Map;\n\n");
+    source.append("import org.mybatis.scripting.velocity.TemplateRenderer;\n");
+    source.append("import org.mybatis.scripting.velocity.TemplateRendererProvider;\n\n");
+    source.append("public final class ").append(PROVIDER_NAME).append(" implements TemplateRendererProvider {\n\n");
+    source.append("  private static final String FINGERPRINT = ").append(quote(this.velocityFacade.getFingerprint()))
+        .append(";\n\n");
+    source.append("  private static final Map<String, TemplateRenderer> RENDERERS = new HashMap<>();\n\n");
+    source.append("  static {\n");
+    for (Map.Entry<String, String> renderer : this.renderers.entrySet()) {
+      source.append("    RENDERERS.put(\"").append(renderer.getKey()).append("\", new ").append(renderer.getValue())
+          .append("());\n");
+    }
+    source.append("  }\n\n");
+    source.append("  @Override\n");
+    source.append("  public TemplateRenderer getRenderer(String digest) {\n");
+    source.append("    return RENDERERS.get(digest);\n");
+    source.append("  }\n\n");
+    source.append("  @Override\n");
+    source.append("  public String getFingerprint() {\n");
+    source.append("    return FINGERPRINT;\n");
+    source.append("  }\n\n");
+    source.append("}\n");
+    return source.toString();
+  }
+
+  static String quote(String text) {
+    StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          quoted.append("\\\"");
+          break;
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        case '\n':
+          quoted.append("\\n");
+          break;
+        case '\r':
+          quoted.append("\\r");
+          break;
+        case '\t':
+          quoted.append("\\t");
+          break;
+        default:
+          if (c < ' ' || c > '~') {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+          break;
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  /**
+   * The Java source of one template: the statements are lines of code, the conditions and values are expressions.
+   */
+  private final class Translation implements TemplateTranslator.Backend<String, String, String> {
+
+    private final String templateName;
+    private final StringBuilder sites = new StringBuilder();
+    private int siteCount;
+
+    Translation(String templateName) {
+      this.templateName = templateName;
+    }
+
+    String toSource(String className, String body) {
+      StringBuilder source = new StringBuilder();
+      source.append("// Generated by mybatis-velocity-maven-plugin from ").append(this.templateName.replace('\n', ' '))
+          .append(", do not edit\n");
+      source.append("package ").append(RendererGenerator.this.packageName).append(";\n\n");
+      source.append("import java.io.IOException;\n\n");
+      source.append("import org.mybatis.scripting.velocity.RenderContext;\n");
+      source.append("import org.mybatis.scripting.velocity.TemplateRenderer;\n\n");
+      source.append("final class ").append(className).append(" implements TemplateRenderer {\n\n");
+      source.append("  private static final String TEMPLATE = ").append(quote(this.templateName)).append(";\n");
+      source.append(this.sites).append('\n');
+      source.append("  @Override\n");
+      source.append("  public void render(RenderContext c) throws IOException {\n");
+      source.append(indent(indent(body)));
+      source.append("  }\n\n");
+      source.append("}\n");
+      return source.toString();
+    }
+
+    @Override
+    public String text(String text) {
+      return "c.write(" + quote(text) + ");\n";
+    }
+
+    @Override
+    public String parameter(int index) {
+      return "c.parameter(" + index + ");\n";
+    }
+
+    @Override
+    public String render(String value, String literal) {
+      return "c.render(" + value + ", " + quote(literal) + ");\n";
+    }
+
+    @Override
+    public String set(Node node) throws UnsupportedTemplateException {
+      throw TemplateTranslator.unsupported(node, "#set is not supported");
+    }
+
+    @Override
+    public String block(List<String> statements) {
+      return String.join("", statements);
+    }
+
+    @Override
+    public String ifElse(List<String> conditions, List<String> blocks, String otherwise) {
+      StringBuilder code = new StringBuilder();
+      for (int i = 0; i < conditions.size(); i++) {
+        code.append(i == 0 ? "if (" : "} else if (").append(conditions.get(i)).append(") {\n")
+            .append(indent(blocks.get(i)));
+      }
+      if (otherwise != null) {
+        code.append("} else {\n").append(indent(otherwise));
+      }
+      return code.append("}\n").toString();
+    }
+
+    @Override
+    public String where(RenderContext.Site site, String block) {
+      return lambda("c.where(" + site(site), block);
+    }
+
+    @Override
+    public String mset(RenderContext.Site site, String block) {
+      return lambda("c.mset(" + site(site), block);
+    }
+
+    @Override
+    public String trim(RenderContext.Site site, String prefix, String prefixOverrides, String suffix,
+        String suffixOverrides, String block) {
+      return lambda("c.trim(" + site(site) + ", " + quote(prefix) + ", " + quote(prefixOverrides) + ", "
+          + quote(suffix) + ", " + quote(suffixOverrides), block);
+    }
+
+    @Override
+    public String repeat(String collection, RenderContext.Site site, String separator, String open, String close,
+        String block) {
+      return lambda("c.repeat(" + collection + ", " + site(site) + ", " + quote(separator) + ", " + quote(open) + ", "
+          + quote(close), block);
+    }
+
+    @Override
+    public String in(String collection, RenderContext.Site site, String column, String binding, int arrayMapping,
+        String block) {
+      return lambda("c.in(" + collection + ", " + site(site) + ", " + quote(column) + ", "
+          + (binding == null ? "null" : quote(binding)) + ", " + arrayMapping, block);
+    }
+
+    @Override
+    public String foreach(String collection, RenderContext.Site site, String block) {
+      return lambda("c.foreach(" + collection + ", " + site(site), block);
+    }
+
+    @Override
+    public String isTrue(String value) {
+      return "c.isTrue(" + value + ")";
+    }
+
+    @Override
+    public String compare(RenderContext.Site site, String left, String right) {
+      return "c.compare(" + site(site) + ", " + left + ", " + right + ")";
+    }
+
+    @Override
+    public String and(String left, String right) {
+      return "(" + left + " && " + right + ")";
+    }
+
+    @Override
+    public String or(String left, String right) {
+      return "(" + left + " || " + right + ")";
+    }
+
+    @Override
+    public String not(String operand) {
+      return "!" + operand;
+    }
+
+    @Override
+    public String condition(boolean value) {
+      return String.valueOf(value);
+    }
+
+    @Override
+    public String variable(String name) {
+      return "c.get(" + quote(name) + ")";
+    }
+
+    @Override
+    public String property(String target, RenderContext.Site site) {
+      return "c.property(" + target + ", " + site(site) + ")";
+    }
+
+    @Override
+    public String invoke(String target, RenderContext.Site site, List<String> args) {
+      StringBuilder invoke = new StringBuilder("c.invoke(").append(target).append(", ").append(site(site));
+      for (String arg : args) {
+        invoke.append(", ").append(arg);
+      }
+      return invoke.append(')').toString();
+    }
+
+    @Override
+    public String constant(Object value) throws UnsupportedTemplateException {
+      if (value instanceof String) {
+        return quote((String) value);
+      } else if (value instanceof Boolean) {
+        return (Boolean) value ? "Boolean.TRUE" : "Boolean.FALSE";
+      } else if (value instanceof Integer) {
+        return "Integer.valueOf(" + value + ")";
+      } else if (value instanceof Long) {
+        return "Long.valueOf(" + value + "L)";
+      } else if (value instanceof Double && Double.isFinite((Double) value)) {
+        return "Double.valueOf(" + value + ")";
+      } else if (value instanceof BigDecimal) {
+        return "new java.math.BigDecimal(\"" + value + "\")";
+      }
+      throw new UnsupportedTemplateException("the constant " + value + " is not supported");
+    }
+
+    @Override
+    public String value(String condition) {
+      return "Boolean.valueOf(" + condition + ")";
+    }
+
+    private String lambda(String call, String block) {
+      return call + ", () -> {\n" + indent(block) + "});\n";
+    }
+
+    private String site(RenderContext.Site site) {
+      String field = "S" + this.siteCount++;
+      this.sites.append("  private static final RenderContext.Site ").append(field)
+          .append(" = new RenderContext.Site(").append(quote(site.getName())).append(", TEMPLATE, ")
+          .append(site.getLine()).append(", ").append(site.getColumn()).append(");\n");
+      return field;
+    }
+
+  }
+
+  /**
+   * Indent lines of code by one level.
+   */
+  private static String indent(String code) {
+    StringBuilder indented = new StringBuilder(code.length() + 32);
+    for (String line : code.split("\n")) {
+      if (!line.isEmpty()) {
+        indented.append("  ").append(line).append('\n');
+      }
+    }
+    return indented.toString();
+  }
+
+}
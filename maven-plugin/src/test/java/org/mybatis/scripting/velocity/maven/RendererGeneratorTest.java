@@ -0,0 +1,175 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity.maven;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.velocity.Template;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mybatis.scripting.velocity.TemplateTranslator;
+import org.mybatis.scripting.velocity.UnsupportedTemplateException;
+import org.mybatis.scripting.velocity.VelocityFacade;
+import org.mybatis.scripting.velocity.VelocityLanguageDriver;
+import org.mybatis.scripting.velocity.VelocityLanguageDriverConfig;
+
+class RendererGeneratorTest {
+
+  private static final String PACKAGE = "org.mybatis.scripting.velocity.generated";
+
+  private static final List<String> SCRIPTS = Arrays.asList(
+      "SELECT * FROM names #where() #if($_parameter.name) AND name = @{name}#end"
+          + " #if($_parameter.age >= 18 && !$_parameter.ids.isEmpty()) AND #in($_parameter.ids $id 'id')@{id}#end#end"
+          + " #end",
+      "UPDATE names #mset() #if($_parameter.name != 'b') name = @{name}, #end age = @{age}, #end WHERE id = 1",
+      "SELECT * FROM names #trim('WHERE' 'AND |OR ') #if($_parameter.missing) AND missing = 1 #else OR age = @{age}"
+          + "#end #end ORDER BY $_parameter.order",
+      "INSERT INTO names (id, name) VALUES #repeat($_parameter.items $item ', ' '(' ')')@{item.id}, @{item.name}#end",
+      "SELECT #foreach($column in $_parameter.columns)$column#if($foreach.hasNext), #end#end"
+          + " FROM names WHERE name = '$_parameter.name.toUpperCase()'"
+          + " AND x = $!{_parameter.missing}$_parameter.missing",
+      "SELECT * FROM names WHERE 1 = 1#if($_parameter.holder) AND holder = 1#end"
+          + "#if($_parameter.age == '20') AND age = @{age}#end");
+
+  @TempDir
+  Path temp;
+
+  @Test
+  void rendersLikeTheInterpretedScripts() throws Exception {
+    RendererGenerator generator = new RendererGenerator(VelocityLanguageDriverConfig.newInstance(), PACKAGE);
+    for (String script : SCRIPTS) {
+      assertTrue(generator.add("test", script));
+    }
+    assertFalse(generator.add("test", "SELECT * FROM names WHERE id = @{id}"));
+    assertEquals(SCRIPTS.size(), generator.size());
+
+    File classes = this.temp.resolve("classes").toFile();
+    generator.writeTo(this.temp.resolve("sources").toFile(), classes,
+        Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)), "11");
+
+    Map<String, Object> item = new HashMap<>();
+    item.put("id", 1);
+    item.put("name", "a");
+    Map<String, Object> param = new HashMap<>();
+    param.put("name", "a");
+    param.put("age", 20);
+    param.put("ids", Arrays.asList(1, 2, 3));
+    param.put("items", Arrays.asList(item, item));
+    param.put("columns", Arrays.asList("id", "name"));
+    param.put("order", "name");
+    param.put("holder", new Holder());
+    Map<String, Object> other = new HashMap<>();
+    other.put("name", "b");
+    other.put("age", 10);
+    other.put("ids", Collections.emptyList());
+    other.put("items", Collections.singletonList(item));
+    other.put("columns", Collections.singletonList("id"));
+    other.put("order", "id");
+    other.put("missing", "x");
+
+    Thread thread = Thread.currentThread();
+    ClassLoader savedClassLoader = thread.getContextClassLoader();
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, savedClassLoader)) {
+      // The provider is only visible to the drivers created by this test
+      thread.setContextClassLoader(classLoader);
+      VelocityFacade facade = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+      VelocityLanguageDriver driver = new VelocityLanguageDriver();
+      Configuration configuration = new Configuration();
+      for (String script : SCRIPTS) {
+        assertFalse(facade.compileTemplate(TemplateTranslator.toTemplate(script), "test") instanceof Template, script);
+        // A comment makes the script differ from the translated one, without changing its output
+        SqlSource interpreted = driver.createSqlSource(configuration, "#* interpreted *#" + script, Map.class);
+        SqlSource precompiled = driver.createSqlSource(configuration, script, Map.class);
+        for (Map<String, Object> parameter : Arrays.asList(param, other)) {
+          BoundSql expected = interpreted.getBoundSql(parameter);
+          BoundSql actual = precompiled.getBoundSql(parameter);
+          assertEquals(expected.getSql(), actual.getSql(), script);
+          assertEquals(properties(expected.getParameterMappings()), properties(actual.getParameterMappings()),
+              script);
+        }
+      }
+    } finally {
+      thread.setContextClassLoader(savedClassLoader);
+    }
+  }
+
+  @Test
+  void ignoresRenderersOfAnotherConfiguration() throws Exception {
+    RendererGenerator generator = new RendererGenerator(
+        VelocityLanguageDriverConfig.newInstance(c -> c.getVelocitySettings().put("directive.if.empty_check", "false")),
+        PACKAGE);
+    assertTrue(generator.add("test", SCRIPTS.get(0)));
+    File classes = this.temp.resolve("classes").toFile();
+    generator.writeTo(this.temp.resolve("sources").toFile(), classes,
+        Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)), "11");
+
+    Thread thread = Thread.currentThread();
+    ClassLoader savedClassLoader = thread.getContextClassLoader();
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, savedClassLoader)) {
+      thread.setContextClassLoader(classLoader);
+      VelocityFacade facade = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+      assertTrue(facade.compileTemplate(TemplateTranslator.toTemplate(SCRIPTS.get(0)), "test") instanceof Template);
+    } finally {
+      thread.setContextClassLoader(savedClassLoader);
+    }
+  }
+
+  @Test
+  void rejectsInvalidAndUnsupportedScripts() {
+    RendererGenerator generator = new RendererGenerator(VelocityLanguageDriverConfig.newInstance(), PACKAGE);
+    assertThrows(BuilderException.class, () -> generator.add("test", "SELECT * FROM names #if($_parameter.id"));
+    assertThrows(UnsupportedTemplateException.class,
+        () -> generator.add("test", "SELECT * FROM names #set($id = 1) WHERE id = $id"));
+    assertThrows(UnsupportedTemplateException.class,
+        () -> generator.add("test", "SELECT * FROM names WHERE id = $_parameter.id + 1"));
+    assertEquals(0, generator.size());
+  }
+
+  private static List<String> properties(List<ParameterMapping> mappings) {
+    return mappings.stream().map(ParameterMapping::getProperty).collect(Collectors.toList());
+  }
+
+  /**
+   * A value that Velocity considers empty, and therefore false, as it has an {@code isEmpty()} method.
+   */
+  public static final class Holder {
+
+    public boolean isEmpty() {
+      return true;
+    }
+
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+
+/**
+ * The parameter mappings of a rendered statement, along with the values resolved while rendering.
+ * <p>
+ * {@link SQLScriptParameterHandler} binds the captured values, as long as the list still matches them.
+ * </p>
+ */
+final class CapturedParameterMappings extends ArrayList<ParameterMapping> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Marks a value that must be resolved at bind time as {@code DefaultParameterHandler} does.
+   */
+  static final Object UNRESOLVED = new Object();
+
+  private transient Object parameterObject;
+  private transient List<Object> values;
+
+  void captureValues(Object newParameterObject) {
+    this.parameterObject = newParameterObject;
+    this.values = new ArrayList<>();
+  }
+
+  boolean isCapturing() {
+    return this.values != null;
+  }
+
+  void addValue(Object value) {
+    this.values.add(value);
+  }
+
+  void unresolve(int index) {
+    this.values.set(index, UNRESOLVED);
+  }
+
+  boolean isCapturedFor(Object newParameterObject) {
+    return this.values != null && this.parameterObject == newParameterObject && this.values.size() == size();
+  }
+
+  Object getValue(int index) {
+    return this.values.get(index);
+  }
+
+}
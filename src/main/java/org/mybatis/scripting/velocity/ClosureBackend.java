@@ -0,0 +1,200 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.List;
+
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Builds the renderer of a template as a tree of closures over the {@link RenderContext} operations, so that the nodes
+ * are not walked nor evaluated again on each render.
+ */
+final class ClosureBackend
+    implements TemplateTranslator.Backend<TemplateRenderer, ClosureBackend.Condition, ClosureBackend.Value> {
+
+  @Override
+  public TemplateRenderer text(String text) {
+    return c -> c.write(text);
+  }
+
+  @Override
+  public TemplateRenderer parameter(int index) {
+    return c -> c.parameter(index);
+  }
+
+  @Override
+  public TemplateRenderer render(Value value, String literal) {
+    return c -> c.render(value.get(c), literal);
+  }
+
+  @Override
+  public TemplateRenderer set(Node node) {
+    // The assignment is rendered by its node, which is immutable once initialized
+    return c -> c.render(node);
+  }
+
+  @Override
+  public TemplateRenderer block(List<TemplateRenderer> statements) {
+    if (statements.isEmpty()) {
+      return c -> {
+      };
+    }
+    if (statements.size() == 1) {
+      return statements.get(0);
+    }
+    TemplateRenderer[] all = statements.toArray(new TemplateRenderer[0]);
+    return c -> {
+      for (TemplateRenderer statement : all) {
+        statement.render(c);
+      }
+    };
+  }
+
+  @Override
+  public TemplateRenderer ifElse(List<Condition> conditions, List<TemplateRenderer> blocks,
+      TemplateRenderer otherwise) {
+    Condition[] tests = conditions.toArray(new Condition[0]);
+    TemplateRenderer[] branches = blocks.toArray(new TemplateRenderer[0]);
+    return c -> {
+      for (int i = 0; i < tests.length; i++) {
+        if (tests[i].test(c)) {
+          branches[i].render(c);
+          return;
+        }
+      }
+      if (otherwise != null) {
+        otherwise.render(c);
+      }
+    };
+  }
+
+  @Override
+  public TemplateRenderer where(RenderContext.Site site, TemplateRenderer block) {
+    return c -> c.where(site, () -> block.render(c));
+  }
+
+  @Override
+  public TemplateRenderer mset(RenderContext.Site site, TemplateRenderer block) {
+    return c -> c.mset(site, () -> block.render(c));
+  }
+
+  @Override
+  public TemplateRenderer trim(RenderContext.Site site, String prefix, String prefixOverrides, String suffix,
+      String suffixOverrides, TemplateRenderer block) {
+    return c -> c.trim(site, prefix, prefixOverrides, suffix, suffixOverrides, () -> block.render(c));
+  }
+
+  @Override
+  public TemplateRenderer repeat(Value collection, RenderContext.Site site, String separator, String open,
+      String close, TemplateRenderer block) {
+    return c -> c.repeat(collection.get(c), site, separator, open, close, () -> block.render(c));
+  }
+
+  @Override
+  public TemplateRenderer in(Value collection, RenderContext.Site site, String column, String binding,
+      int arrayMapping, TemplateRenderer block) {
+    return c -> c.in(collection.get(c), site, column, binding, arrayMapping, () -> block.render(c));
+  }
+
+  @Override
+  public TemplateRenderer foreach(Value collection, RenderContext.Site site, TemplateRenderer block) {
+    return c -> c.foreach(collection.get(c), site, () -> block.render(c));
+  }
+
+  @Override
+  public Condition isTrue(Value value) {
+    return c -> c.isTrue(value.get(c));
+  }
+
+  @Override
+  public Condition compare(RenderContext.Site site, Value left, Value right) {
+    return c -> c.compare(site, left.get(c), right.get(c));
+  }
+
+  @Override
+  public Condition and(Condition left, Condition right) {
+    return c -> left.test(c) && right.test(c);
+  }
+
+  @Override
+  public Condition or(Condition left, Condition right) {
+    return c -> left.test(c) || right.test(c);
+  }
+
+  @Override
+  public Condition not(Condition operand) {
+    return c -> !operand.test(c);
+  }
+
+  @Override
+  public Condition condition(boolean value) {
+    return c -> value;
+  }
+
+  @Override
+  public Value variable(String name) {
+    return c -> c.get(name);
+  }
+
+  @Override
+  public Value property(Value target, RenderContext.Site site) {
+    return c -> c.property(target.get(c), site);
+  }
+
+  @Override
+  public Value invoke(Value target, RenderContext.Site site, List<Value> args) {
+    Value[] all = args.toArray(new Value[0]);
+    return c -> {
+      Object[] values = new Object[all.length];
+      for (int i = 0; i < all.length; i++) {
+        values[i] = all[i].get(c);
+      }
+      return c.invoke(target.get(c), site, values);
+    };
+  }
+
+  @Override
+  public Value constant(Object value) {
+    return c -> value;
+  }
+
+  @Override
+  public Value value(Condition condition) {
+    return c -> condition.test(c);
+  }
+
+  /**
+   * A translated expression.
+   */
+  @FunctionalInterface
+  interface Value {
+
+    Object get(RenderContext c);
+
+  }
+
+  /**
+   * A translated condition.
+   */
+  @FunctionalInterface
+  interface Condition {
+
+    boolean test(RenderContext c);
+
+  }
+
+}
@@ -0,0 +1,333 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * A bounded cache of the sql sources created for a script, shared by the statements created for the same script,
+ * parameter type and configuration.
+ * <p>
+ * Lookups only read a concurrent map. The eviction policy is a W-TinyLFU: a new entry enters a small LRU window, and
+ * when it leaves the window, it is admitted in the main segmented LRU only if it has been used more often than the
+ * entry it would evict, according to a count-min sketch of the recent uses. A script used once does not evict the
+ * scripts used often. The policy is updated under a lock that a lookup does not wait for: a use is not recorded when
+ * the lock is busy.
+ * </p>
+ */
+final class CompileCache<V> {
+
+  private static final int NONE = 0;
+  private static final int WINDOW = 1;
+  private static final int PROBATION = 2;
+  private static final int PROTECTED = 3;
+  private static final int REMOVED = -1;
+
+  private final ConcurrentMap<Key, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final ReentrantLock policyLock = new ReentrantLock();
+  private final FrequencySketch sketch;
+  private final Queue<V> window = new Queue<>();
+  private final Queue<V> probation = new Queue<>();
+  private final Queue<V> protectedQueue = new Queue<>();
+  private final int maximumWindowSize;
+  private final int maximumMainSize;
+  private final int maximumProtectedSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  CompileCache(int maximumSize) {
+    this.maximumWindowSize = Math.max(1, maximumSize / 100);
+    this.maximumMainSize = Math.max(1, maximumSize - this.maximumWindowSize);
+    this.maximumProtectedSize = Math.max(1, this.maximumMainSize * 4 / 5);
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  /**
+   * Return the cached value of a key, or create and cache it.
+   *
+   * @param key
+   *          the key
+   * @param factory
+   *          creates the value when it is not cached; a value created concurrently for the same key is discarded
+   *
+   * @return the value
+   */
+  V get(Key key, Supplier<V> factory) {
+    Entry<V> entry = this.entries.get(key);
+    if (entry != null) {
+      this.hits.increment();
+      if (this.policyLock.tryLock()) {
+        try {
+          onAccess(entry);
+        } finally {
+          this.policyLock.unlock();
+        }
+      }
+      return entry.value;
+    }
+    this.misses.increment();
+    Entry<V> created = new Entry<>(key, factory.get());
+    entry = this.entries.putIfAbsent(key, created);
+    if (entry != null) {
+      return entry.value;
+    }
+    this.policyLock.lock();
+    try {
+      onInsert(created);
+    } finally {
+      this.policyLock.unlock();
+    }
+    return created.value;
+  }
+
+  /**
+   * Return the number of cached values.
+   */
+  int size() {
+    return this.entries.size();
+  }
+
+  CompileCacheStats stats() {
+    return new CompileCacheStats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.entries.size());
+  }
+
+  private void onAccess(Entry<V> entry) {
+    this.sketch.increment(entry.key.hashCode());
+    switch (entry.queue) {
+      case WINDOW:
+        this.window.moveToTail(entry);
+        break;
+      case PROBATION:
+        this.probation.remove(entry);
+        this.protectedQueue.add(entry, PROTECTED);
+        if (this.protectedQueue.size > this.maximumProtectedSize) {
+          Entry<V> demoted = this.protectedQueue.head;
+          this.protectedQueue.remove(demoted);
+          this.probation.add(demoted, PROBATION);
+        }
+        break;
+      case PROTECTED:
+        this.protectedQueue.moveToTail(entry);
+        break;
+      default:
+        // Not linked yet, or already evicted
+        break;
+    }
+  }
+
+  private void onInsert(Entry<V> entry) {
+    if (entry.queue != NONE) {
+      return;
+    }
+    this.sketch.increment(entry.key.hashCode());
+    this.window.add(entry, WINDOW);
+    if (this.window.size <= this.maximumWindowSize) {
+      return;
+    }
+    Entry<V> candidate = this.window.head;
+    this.window.remove(candidate);
+    if (this.probation.size + this.protectedQueue.size < this.maximumMainSize) {
+      this.probation.add(candidate, PROBATION);
+      return;
+    }
+    Entry<V> victim = this.probation.head != null ? this.probation.head : this.protectedQueue.head;
+    if (this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode())) {
+      (victim.queue == PROBATION ? this.probation : this.protectedQueue).remove(victim);
+      evict(victim);
+      this.probation.add(candidate, PROBATION);
+    } else {
+      evict(candidate);
+    }
+  }
+
+  private void evict(Entry<V> entry) {
+    entry.queue = REMOVED;
+    this.entries.remove(entry.key, entry);
+    this.evictions.increment();
+  }
+
+  /**
+   * The key of a script: its text, its parameter type and its configuration, compared by identity.
+   */
+  static final class Key {
+
+    private final Configuration configuration;
+    private final Class<?> parameterType;
+    private final String script;
+    private final int hash;
+
+    Key(Configuration configuration, Class<?> parameterType, String script) {
+      this.configuration = configuration;
+      this.parameterType = parameterType;
+      this.script = script;
+      this.hash = (31 * System.identityHashCode(configuration) + parameterType.hashCode()) * 31 + script.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.hash == other.hash && this.configuration == other.configuration
+          && this.parameterType == other.parameterType && this.script.equals(other.script);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+  }
+
+  private static final class Entry<V> {
+
+    final Key key;
+    final V value;
+    int queue;
+    Entry<V> prev;
+    Entry<V> next;
+
+    Entry(Key key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+  }
+
+  /**
+   * An LRU queue, from the least recently used entry at the head to the most recently used at the tail.
+   */
+  private static final class Queue<V> {
+
+    Entry<V> head;
+    Entry<V> tail;
+    int size;
+
+    void add(Entry<V> entry, int queue) {
+      entry.queue = queue;
+      entry.prev = this.tail;
+      entry.next = null;
+      if (this.tail == null) {
+        this.head = entry;
+      } else {
+        this.tail.next = entry;
+      }
+      this.tail = entry;
+      this.size++;
+    }
+
+    void remove(Entry<V> entry) {
+      if (entry.prev == null) {
+        this.head = entry.next;
+      } else {
+        entry.prev.next = entry.next;
+      }
+      if (entry.next == null) {
+        this.tail = entry.prev;
+      } else {
+        entry.next.prev = entry.prev;
+      }
+      entry.prev = null;
+      entry.next = null;
+      this.size--;
+    }
+
+    void moveToTail(Entry<V> entry) {
+      if (entry != this.tail) {
+        int queue = entry.queue;
+        remove(entry);
+        add(entry, queue);
+      }
+    }
+
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters, halved when the number of recorded uses reaches ten times the size of the
+   * cache, so that old uses are forgotten.
+   */
+  static final class FrequencySketch {
+
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      int length = Integer.highestOneBit(Math.max(8, maximumSize) - 1) << 1;
+      this.table = new long[length];
+      this.sampleSize = Math.max(10, maximumSize * 10);
+    }
+
+    int frequency(int hash) {
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; i++) {
+        long h = mix(hash, i);
+        int count = (int) ((this.table[index(h)] >>> offset(h)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        long h = mix(hash, i);
+        int index = index(h);
+        int offset = offset(h);
+        if (((this.table[index] >>> offset) & 0xfL) < 0xfL) {
+          this.table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++this.additions == this.sampleSize) {
+        for (int i = 0; i < this.table.length; i++) {
+          this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+        }
+        this.additions /= 2;
+      }
+    }
+
+    private static long mix(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      return h ^ (h >>> 32);
+    }
+
+    private int index(long h) {
+      return (int) (h >>> 8) & (this.table.length - 1);
+    }
+
+    private static int offset(long h) {
+      return (int) (h & 15) << 2;
+    }
+
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+/**
+ * The statistics of the compile cache of a {@link VelocityLanguageDriver}.
+ *
+ * @since 2.3.2
+ *
+ * @see VelocityLanguageDriverConfig#setCompileCacheSize(int)
+ */
+public final class CompileCacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final int size;
+
+  CompileCacheStats(long hitCount, long missCount, long evictionCount, int size) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.size = size;
+  }
+
+  /**
+   * Get the number of scripts found in the cache.
+   *
+   * @return the number of hits
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get the number of scripts compiled because they were not in the cache.
+   *
+   * @return the number of misses
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Get the number of compiled scripts evicted from the cache, or not admitted in it.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Get the number of compiled scripts in the cache.
+   *
+   * @return the size of the cache
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Get the ratio of the scripts found in the cache.
+   *
+   * @return the hit rate, {@code 1.0} if the cache has not been used
+   */
+  public double getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "CompileCacheStats [hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+        + ", size=" + size + "]";
+  }
+
+}
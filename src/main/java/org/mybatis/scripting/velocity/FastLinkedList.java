@@ -19,7 +19,11 @@ import java.io.Serializable;
 
 /**
  * Paranoiac small and fast forward only list
+ *
+ * @deprecated since 2.3.2, not used by the directives anymore; only returned by the deprecated getters of
+ *             {@code TrimDirective.Params} for compatibility, and to be removed in a future major version
  */
+@Deprecated
 public final class FastLinkedList<E extends Serializable> implements Serializable {
 
   private static final long serialVersionUID = 1L;
@@ -0,0 +1,42 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Caches the getter type of each property path per parameter type, for all statements compiled by a driver.
+ */
+final class GetterTypeCache {
+
+  private final ConcurrentMap<Class<?>, ConcurrentMap<String, Class<?>>> getterTypes = new ConcurrentHashMap<>();
+
+  Class<?> getGetterType(ReflectorFactory reflectorFactory, Class<?> type, String property) {
+    ConcurrentMap<String, Class<?>> types = this.getterTypes.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+    Class<?> getterType = types.get(property);
+    if (getterType == null) {
+      MetaClass metaClass = MetaClass.forClass(type, reflectorFactory);
+      getterType = metaClass.hasGetter(property) ? metaClass.getGetterType(property) : Object.class;
+      types.putIfAbsent(property, getterType);
+    }
+    return getterType;
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2024 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,9 +16,17 @@
 package org.mybatis.scripting.velocity;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.exception.TemplateInitException;
@@ -32,10 +40,38 @@ import org.apache.velocity.runtime.parser.node.StandardParserTreeConstants;
 import org.apache.velocity.util.introspection.Info;
 
 /**
- * #in($collection $item COLUMN).
+ * #in($collection $item COLUMN [BINDING]).
+ * <p>
+ * The optional BINDING argument is {@code 'array'} to render {@code (COLUMN = ANY(?))} and bind the collection as a
+ * single {@link java.sql.Array}, or {@code 'expand'} to bind each item. When omitted, the array binding is used if the
+ * current database id is listed in the {@value #ARRAY_BINDING_PROPERTY} property of the template engine.
+ * </p>
+ * <p>
+ * The array binding applies only when the body is a single parameter of the item (e.g. {@code @{item}} or
+ * {@code @{item.id}}); otherwise each item is bound.
+ * </p>
  */
 public class InDirective extends RepeatDirective {
 
+  /**
+   * The property that lists (comma separated) the database ids for which the collection is bound as an array.
+   *
+   * @since 2.3.2
+   */
+  public static final String ARRAY_BINDING_PROPERTY = "directive.in.array_binding";
+
+  /**
+   * The property that enables the padding of expanded items: {@code pow2} to round the number of items up to the next
+   * power of two, or a comma separated list of sizes (e.g. {@code 10,50,100,500,1000}) to round it up to the next
+   * listed size, or to the next multiple of the largest one.
+   *
+   * @since 2.3.2
+   */
+  public static final String PADDING_PROPERTY = "directive.in.padding";
+
+  static final Pattern PARAMETER_REFERENCE = Pattern
+      .compile("\\$!?\\{?" + SQLScriptSource.MAPPING_COLLECTOR_KEY + "\\.g\\((\\d+)\\)\\}?");
+
   /**
    * Immutable fields
    */
@@ -49,6 +85,14 @@ public class InDirective extends RepeatDirective {
 
   private String column = "";
 
+  private Boolean arrayBinding;
+
+  private Set<String> arrayBindingDatabaseIds = Collections.emptySet();
+
+  private int arrayMapping = -1;
+
+  private int[] paddingSizes;
+
   @Override
   public String getName() {
     return "in";
@@ -70,17 +114,120 @@ public class InDirective extends RepeatDirective {
         String value = (String) ((ASTStringLiteral) child).value(context);
         if (i == 2) {
           this.column = value;
+        } else if (i == 3) {
+          if ("array".equals(value)) {
+            this.arrayBinding = Boolean.TRUE;
+          } else if ("expand".equals(value)) {
+            this.arrayBinding = Boolean.FALSE;
+          } else {
+            throw new TemplateInitException("Unknown binding '" + value + "'", getTemplateName(), getLine(),
+                getColumn());
+          }
         }
       } else {
         throw new TemplateInitException("Syntax error", getTemplateName(), getLine(), getColumn());
       }
     }
     this.uberInfo = new Info(this.getTemplateName(), getLine(), getColumn());
+    this.arrayMapping = findSingleParameter(node.jjtGetChild(node.jjtGetNumChildren() - 1));
+    configureEngine(rs);
+  }
+
+  /**
+   * Configure a directive rendered by a {@link TemplateRenderer}, instead of initializing it from a node.
+   */
+  void configure(RuntimeServices rs, String newVar, String newColumn, Boolean newArrayBinding, int newArrayMapping,
+      Info newUberInfo) {
+    this.rsvc = rs;
+    this.var = newVar;
+    this.column = newColumn;
+    this.arrayBinding = newArrayBinding;
+    this.arrayMapping = newArrayMapping;
+    this.uberInfo = newUberInfo;
+    configureEngine(rs);
+  }
+
+  private void configureEngine(RuntimeServices rs) {
+    String databaseIds = rs.getString(ARRAY_BINDING_PROPERTY);
+    if (databaseIds != null && !databaseIds.trim().isEmpty()) {
+      this.arrayBindingDatabaseIds = new HashSet<>();
+      for (String databaseId : databaseIds.split(",")) {
+        this.arrayBindingDatabaseIds.add(databaseId.trim());
+      }
+    }
+    this.paddingSizes = parsePaddingSizes(rs.getString(PADDING_PROPERTY));
+  }
+
+  /**
+   * Parse the padding setting.
+   *
+   * @return {@code null} for no padding, an empty array for powers of two, or the sorted sizes
+   */
+  private int[] parsePaddingSizes(String padding) {
+    if (padding == null || padding.trim().isEmpty() || "none".equals(padding.trim())) {
+      return null;
+    }
+    if ("pow2".equals(padding.trim())) {
+      return new int[0];
+    }
+    try {
+      int[] sizes = Arrays.stream(padding.split(",")).map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+      if (sizes[0] <= 0) {
+        throw new NumberFormatException(padding);
+      }
+      return sizes;
+    } catch (NumberFormatException e) {
+      throw new TemplateInitException("Invalid " + PADDING_PROPERTY + " '" + padding + "'", getTemplateName(),
+          getLine(), getColumn());
+    }
+  }
+
+  int getPaddedSize(int size) {
+    if (size <= 1 || this.paddingSizes == null) {
+      return size;
+    }
+    if (this.paddingSizes.length == 0) {
+      return Integer.highestOneBit(size - 1) << 1;
+    }
+    for (int paddingSize : this.paddingSizes) {
+      if (size <= paddingSize) {
+        return paddingSize;
+      }
+    }
+    int largest = this.paddingSizes[this.paddingSizes.length - 1];
+    return (size + largest - 1) / largest * largest;
+  }
+
+  /**
+   * Return the index of the parameter mapping when a block only consists of one parameter.
+   */
+  static int findSingleParameter(Node block) {
+    int mapping = -1;
+    for (int i = 0; i < block.jjtGetNumChildren(); i++) {
+      Node child = block.jjtGetChild(i);
+      if (child.getType() == StandardParserTreeConstants.JJTTEXT && child.literal().trim().isEmpty()) {
+        continue;
+      }
+      Matcher matcher = child.getType() == StandardParserTreeConstants.JJTREFERENCE
+          ? PARAMETER_REFERENCE.matcher(child.literal())
+          : null;
+      if (mapping != -1 || matcher == null || !matcher.matches()) {
+        return -1;
+      }
+      mapping = Integer.parseInt(matcher.group(1));
+    }
+    return mapping;
   }
 
   @Override
   public boolean render(InternalContextAdapter context, Writer writer, Node node) throws IOException {
     Object listObject = node.jjtGetChild(0).value(context);
+    return render(context, writer, listObject, node.jjtGetChild(node.jjtGetNumChildren() - 1)::render);
+  }
+
+  @Override
+  boolean render(InternalContextAdapter context, Writer writer, Object listObject, BlockRenderer block)
+      throws IOException {
     if (listObject == null) {
       return false;
     }
@@ -101,32 +248,62 @@ public class InDirective extends RepeatDirective {
       throw new VelocityException("Invalid collection");
     }
 
+    ParameterMappingCollector collector = (ParameterMappingCollector) context
+        .get(SQLScriptSource.MAPPING_COLLECTOR_KEY);
+    if (isArrayBinding(context, collector)) {
+      List<Object> items = new ArrayList<>();
+      while (iterator.hasNext()) {
+        items.add(iterator.next());
+      }
+      if (items.isEmpty()) {
+        renderEmpty(writer);
+      } else {
+        writer.append(this.open);
+        writer.append(this.column);
+        writer.append(" = ANY");
+        writer.append(this.open);
+        writer.append(collector.bindArray(this.arrayMapping, items));
+        writer.append(this.close);
+        writer.append(this.close);
+      }
+      return true;
+    }
+
+    PaddedIterator padded = null;
+    if (this.paddingSizes != null) {
+      List<Object> items = new ArrayList<>();
+      iterator.forEachRemaining(items::add);
+      padded = new PaddedIterator(items, getPaddedSize(items.size()));
+      iterator = padded;
+    }
+
     int counter = 0;
     Object o = context.get(this.var);
 
-    ParameterMappingCollector collector = (ParameterMappingCollector) context
-        .get(SQLScriptSource.MAPPING_COLLECTOR_KEY);
     String savedItemKey = collector.getItemKey();
-    collector.setItemKey(this.var);
-    RepeatScope foreach = new RepeatScope(this, context.get(getName()), this.var);
+    RepeatScope savedItemScope = collector.getItemScope();
+    RepeatScope foreach = new RepeatScope(this, context.get(getName()), this.var, this.uberInfo);
+    collector.setItemScope(foreach);
     context.put(getName(), foreach);
 
     NullHolderContext nullHolderContext = null;
     Object value = null;
-    StringWriter buffer = new StringWriter();
+    TrimmingWriter body = new TrimmingWriter(writer, this.open);
 
     while (iterator.hasNext()) {
 
       if (counter % MAX_IN_CLAUSE_SIZE == 0) {
-        buffer.append(this.open); // Group begins
-        buffer.append(this.column);
-        buffer.append(" IN ");
-        buffer.append(this.open); // In starts
+        body.append(this.open); // Group begins
+        body.append(this.column);
+        body.append(" IN ");
+        body.append(this.open); // In starts
       }
 
       value = iterator.next();
       put(context, this.var, value);
-      foreach.index++;
+      if (padded == null || !padded.isPadding()) {
+        foreach.index++;
+      }
       foreach.hasNext = iterator.hasNext();
 
       try {
@@ -134,56 +311,102 @@ public class InDirective extends RepeatDirective {
           if (nullHolderContext == null) {
             nullHolderContext = new NullHolderContext(this.var, context);
           }
-          node.jjtGetChild(node.jjtGetNumChildren() - 1).render(nullHolderContext, buffer);
+          block.render(nullHolderContext, body);
         } else {
-          node.jjtGetChild(node.jjtGetNumChildren() - 1).render(context, buffer);
+          block.render(context, body);
         }
       } catch (StopCommand stop) {
         if (stop.isFor(this)) {
           break;
         }
-        clean(context, o, collector, savedItemKey);
+        clean(context, o, collector, savedItemKey, savedItemScope);
         // close does not perform any action and this is here
         // to avoid eclipse reporting possible leak.
-        buffer.close();
+        body.close();
         throw stop;
       }
       counter++;
 
       if ((counter > 0 && counter % MAX_IN_CLAUSE_SIZE == 0) || !iterator.hasNext()) {
-        buffer.append(this.close); // In ends
-        buffer.append(this.close); // Group ends
+        body.append(this.close); // In ends
+        body.append(this.close); // Group ends
         if (iterator.hasNext()) {
-          buffer.append(" OR ");
+          body.append(" OR ");
         }
       } else if (iterator.hasNext()) {
-        buffer.append(this.separator);
+        body.append(this.separator);
       }
 
     }
-    String content = buffer.toString().trim();
-    if (!"".equals(content)) {
-      writer.append(this.open);
-      writer.append(content);
+    if (body.isStarted()) {
       writer.append(this.close);
     } else {
-      writer.append(this.open);
-      writer.append(this.open);
-      writer.append(this.column);
-      writer.append(" NOT IN ");
-      writer.append(this.open);
-      writer.append(" NULL ");
-      writer.append(this.close);
-      writer.append(this.close);
-      writer.append(this.close);
+      renderEmpty(writer);
     }
-    clean(context, o, collector, savedItemKey);
+    clean(context, o, collector, savedItemKey, savedItemScope);
     return true;
   }
 
+  private boolean isArrayBinding(InternalContextAdapter context, ParameterMappingCollector collector) {
+    if (this.arrayMapping == -1 || Boolean.FALSE.equals(this.arrayBinding)
+        || !collector.canBindArray(this.arrayMapping, this.var)) {
+      return false;
+    }
+    return this.arrayBinding != null
+        || this.arrayBindingDatabaseIds.contains(context.get(SQLScriptSource.DATABASE_ID_KEY));
+  }
+
+  private void renderEmpty(Writer writer) throws IOException {
+    writer.append(this.open);
+    writer.append(this.open);
+    writer.append(this.column);
+    writer.append(" NOT IN ");
+    writer.append(this.open);
+    writer.append(" NULL ");
+    writer.append(this.close);
+    writer.append(this.close);
+    writer.append(this.close);
+  }
+
   @Override
   public int getType() {
     return BLOCK;
   }
 
+  /**
+   * Iterates the items, then repeats the last one up to the padded size.
+   */
+  private static final class PaddedIterator implements Iterator<Object> {
+
+    private final List<Object> items;
+    private final int size;
+    private int index;
+
+    PaddedIterator(List<Object> items, int size) {
+      this.items = items;
+      this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.index < this.size;
+    }
+
+    @Override
+    public Object next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return this.items.get(Math.min(this.index++, this.items.size() - 1));
+    }
+
+    /**
+     * Return whether the last returned item is a repetition.
+     */
+    boolean isPadding() {
+      return this.index > this.items.size();
+    }
+
+  }
+
 }
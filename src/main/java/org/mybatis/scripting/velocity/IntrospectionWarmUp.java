@@ -0,0 +1,134 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.session.Configuration;
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.parser.node.ASTIdentifier;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Resolves the properties that a statement references against its parameter type when it is compiled, instead of on
+ * its first renders: the {@code $_parameter.name.child} references are introspected by the {@link WarmUpUberspect} of
+ * the template engine, and the properties of the {@code @{}} parameters by the reflector of MyBatis.
+ * <p>
+ * The properties that the parameter type does not have (e.g. a misspelled property) are returned, so that they are
+ * reported before the statement is used. A parameter type that is a map, a simple type or {@link Object} is not
+ * checked.
+ * </p>
+ */
+final class IntrospectionWarmUp {
+
+  private IntrospectionWarmUp() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Warm up the introspection of the properties of a statement.
+   *
+   * @param facade
+   *          the template engine
+   * @param configuration
+   *          the MyBatis configuration
+   * @param parameterType
+   *          the parameter type of the statement
+   * @param propertyPaths
+   *          the properties of the parameter mappings
+   * @param template
+   *          the parsed template, or {@code null} if the script is static
+   *
+   * @return the description of each unknown property
+   */
+  static Set<String> warmUp(VelocityFacade facade, Configuration configuration, Class<?> parameterType,
+      PropertyPaths propertyPaths, Template template) {
+    if (parameterType == Object.class || Map.class.isAssignableFrom(parameterType)
+        || configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType)) {
+      return Collections.emptySet();
+    }
+    MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
+    Set<String> problems = new LinkedHashSet<>();
+    Set<String> variables = new HashSet<>();
+    if (template != null && template.getData() instanceof Node) {
+      Node root = (Node) template.getData();
+      ParameterShape.collect(root, new HashSet<>(), variables);
+      WarmUpUberspect uberspect = facade.getWarmUpUberspect();
+      if (uberspect != null) {
+        references(root, uberspect, parameterType, metaClass, problems);
+      }
+    }
+    for (int i = 0; i < propertyPaths.roots.length; i++) {
+      String root = propertyPaths.roots[i];
+      int index = root.indexOf('[');
+      String name = index == -1 ? root : root.substring(0, index);
+      if (name.isEmpty() || variables.contains(name) || name.startsWith(ParameterMappingCollector.ITEM_PREFIX)
+          || facade.isContextName(name)) {
+        continue;
+      }
+      String property = root + propertyPaths.paths[i];
+      if (!metaClass.hasGetter(property)) {
+        problems.add(unknown(property, parameterType, metaClass, "@{" + property + "}"));
+      }
+    }
+    return problems;
+  }
+
+  private static void references(Node node, WarmUpUberspect uberspect, Class<?> parameterType, MetaClass metaClass,
+      Set<String> problems) {
+    if (node instanceof ASTReference
+        && SQLScriptSource.PARAMETER_OBJECT_KEY.equals(((ASTReference) node).getRootString())) {
+      Class<?> type = parameterType;
+      for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+        Node child = node.jjtGetChild(i);
+        if (!(child instanceof ASTIdentifier)) {
+          break;
+        }
+        String property = child.getFirstToken().image;
+        Class<?> propertyType = uberspect.warmUp(type, property);
+        if (propertyType == null) {
+          problems.add(unknown(property, type, i == 0 ? metaClass : null,
+              node.literal() + " at line " + child.getLine() + ", column " + child.getColumn()));
+          break;
+        }
+        if (propertyType == Object.class || propertyType.isPrimitive()) {
+          break;
+        }
+        type = propertyType;
+      }
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      references(node.jjtGetChild(i), uberspect, parameterType, metaClass, problems);
+    }
+  }
+
+  private static String unknown(String property, Class<?> type, MetaClass metaClass, String location) {
+    StringBuilder problem = new StringBuilder("'").append(property).append("' is not a property of ")
+        .append(type.getName()).append(" (").append(location).append(')');
+    String candidate = metaClass == null || property.indexOf('.') >= 0 ? null : metaClass.findProperty(property);
+    if (candidate != null && !candidate.equals(property)) {
+      problem.append(", did you mean '").append(candidate).append("'?");
+    }
+    return problem.toString();
+  }
+
+}
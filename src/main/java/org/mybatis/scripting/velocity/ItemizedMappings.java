@@ -0,0 +1,96 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The itemized parameter mappings ({@code _RPTITEM_n...}) of a statement.
+ * <p>
+ * An itemized mapping only differs from its source mapping by its property name, so each source is kept as a
+ * prototype whose type handler, jdbc type and mode are already resolved, and every item is derived from it without
+ * resolving them again. The {@code _RPTITEM_n} names come from a table shared by all statements.
+ * </p>
+ */
+final class ItemizedMappings {
+
+  static final int MAX_ITEM_NAMES = 1 << 14;
+
+  private static volatile String[] itemNames = new String[0];
+
+  private final Configuration configuration;
+  private final ParameterMapping[] prototypes;
+  private final String[] paths;
+  private final boolean[] extended;
+
+  ItemizedMappings(Configuration configuration, ParameterMapping[] parameterMappingSources,
+      PropertyPaths propertyPaths) {
+    this.configuration = configuration;
+    this.prototypes = parameterMappingSources;
+    this.paths = propertyPaths.paths;
+    this.extended = new boolean[parameterMappingSources.length];
+    for (int i = 0; i < parameterMappingSources.length; i++) {
+      ParameterMapping prototype = parameterMappingSources[i];
+      this.extended[i] = prototype.getExpression() != null || prototype.getJdbcTypeName() != null
+          || prototype.getNumericScale() != null || prototype.getResultMapId() != null;
+    }
+  }
+
+  /**
+   * Return the {@code _RPTITEM_n} name of an item, from a table shared by all statements.
+   */
+  static String itemName(int uid) {
+    String[] names = itemNames;
+    if (uid < names.length) {
+      return names[uid];
+    }
+    if (uid >= MAX_ITEM_NAMES) {
+      return ParameterMappingCollector.ITEM_PREFIX + uid;
+    }
+    synchronized (ItemizedMappings.class) {
+      names = itemNames;
+      if (uid >= names.length) {
+        String[] newNames = new String[Math.min(MAX_ITEM_NAMES, Math.max(uid + 1, names.length * 2))];
+        System.arraycopy(names, 0, newNames, 0, names.length);
+        for (int i = names.length; i < newNames.length; i++) {
+          newNames[i] = ParameterMappingCollector.ITEM_PREFIX + i;
+        }
+        itemNames = newNames;
+        names = newNames;
+      }
+    }
+    return names[uid];
+  }
+
+  /**
+   * Derive the mapping of an item from the prototype of its source mapping.
+   */
+  ParameterMapping get(int mapping, String itemName) {
+    ParameterMapping prototype = this.prototypes[mapping];
+    String path = this.paths[mapping];
+    // The type handler is set, so the builder does not resolve it again
+    ParameterMapping.Builder builder = new ParameterMapping.Builder(this.configuration,
+        path.isEmpty() ? itemName : itemName + path, prototype.getJavaType()).typeHandler(prototype.getTypeHandler())
+        .jdbcType(prototype.getJdbcType()).mode(prototype.getMode());
+    if (this.extended[mapping]) {
+      builder.expression(prototype.getExpression()).jdbcTypeName(prototype.getJdbcTypeName())
+          .numericScale(prototype.getNumericScale()).resultMapId(prototype.getResultMapId());
+    }
+    return builder.build();
+  }
+
+}
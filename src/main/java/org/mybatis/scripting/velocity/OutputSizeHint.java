@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+/**
+ * Learns the output size of a template (or of a directive node) from its recent renders, to presize the next buffer.
+ * <p>
+ * The hint grows by at most 4 times per render and decays slowly on decreases, so that one outlier render (e.g. a
+ * {@code #in} over a huge collection) does not make the next renders allocate huge buffers, and the capacity never
+ * exceeds {@link #MAX_CAPACITY}: a larger output grows its buffer as it is written. Updates are not synchronized: a
+ * lost update only costs one buffer growth.
+ * </p>
+ */
+final class OutputSizeHint {
+
+  /**
+   * The maximum capacity of a presized buffer, in characters.
+   */
+  static final int MAX_CAPACITY = 64 * 1024;
+
+  private final int minimum;
+
+  private int size;
+
+  OutputSizeHint(int minimum) {
+    this.minimum = minimum;
+  }
+
+  int capacity() {
+    final int s = this.size;
+    return s < this.minimum ? this.minimum : Math.min(s + (s >>> 4), MAX_CAPACITY);
+  }
+
+  void record(int length) {
+    final int s = this.size;
+    if (length >= s) {
+      this.size = Math.min(length, Math.min(Math.max(s, this.minimum) << 2, MAX_CAPACITY));
+    } else {
+      this.size = s - ((s - length + 7) >>> 3);
+    }
+  }
+
+  SQLWriter newWriter() {
+    return new SQLWriter(capacity());
+  }
+
+}
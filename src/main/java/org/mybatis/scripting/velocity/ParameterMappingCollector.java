@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,26 +15,52 @@
  */
 package org.mybatis.scripting.velocity;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ArrayTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.mybatis.scripting.velocity.RepeatDirective.RepeatScope;
 
 public class ParameterMappingCollector {
 
+  static final String ITEM_PREFIX = "_RPTITEM_";
+
+  private static final ArrayTypeHandler ARRAY_TYPE_HANDLER = new ArrayTypeHandler();
+
   private final ParameterMapping[] parameterMappingSources;
-  private final List<ParameterMapping> parameterMappings = new ArrayList<>();
+  private final PropertyPaths propertyPaths;
+  private final ItemizedMappings itemizedMappings;
+  private final CapturedParameterMappings parameterMappings = new CapturedParameterMappings();
   private final Map<String, Object> context;
   private final Configuration configuration;
 
   private int uid = 0;
   private String itemKey;
+  private RepeatScope itemScope;
+  private List<RepeatScope> itemScopes;
+  private List<Integer> itemIndexes;
+  private List<String> capturedRoots;
+  private Object parameterObject;
+  private MetaObject parameterMetaObject;
 
   public ParameterMappingCollector(ParameterMapping[] newParameterMappingSources, Map<String, Object> newContext,
       Configuration newConfiguration) {
+    this(newParameterMappingSources, new PropertyPaths(newParameterMappingSources), null, newContext,
+        newConfiguration);
+  }
+
+  ParameterMappingCollector(ParameterMapping[] newParameterMappingSources, PropertyPaths newPropertyPaths,
+      ItemizedMappings newItemizedMappings, Map<String, Object> newContext, Configuration newConfiguration) {
     this.parameterMappingSources = newParameterMappingSources;
+    this.propertyPaths = newPropertyPaths;
+    this.itemizedMappings = newItemizedMappings != null ? newItemizedMappings
+        : new ItemizedMappings(newConfiguration, newParameterMappingSources, newPropertyPaths);
     this.context = newContext;
     this.configuration = newConfiguration;
   }
@@ -47,12 +73,135 @@ public class ParameterMappingCollector {
     return this.itemKey;
   }
 
+  public void setItemScope(RepeatScope value) {
+    this.itemScope = value;
+    this.itemKey = value == null ? null : value.getVar();
+  }
+
+  public RepeatScope getItemScope() {
+    return this.itemScope;
+  }
+
+  /**
+   * Start recording which loop and which iteration every itemized parameter comes from.
+   */
+  void recordItemSources() {
+    this.itemScopes = new ArrayList<>();
+    this.itemIndexes = new ArrayList<>();
+  }
+
+  /**
+   * Return the loop scopes of the itemized parameters in itemizing order.
+   *
+   * @return the loop scopes, a {@code null} element means an item that was not provided by a loop scope
+   */
+  List<RepeatScope> getItemScopes() {
+    return this.itemScopes;
+  }
+
+  List<Integer> getItemIndexes() {
+    return this.itemIndexes;
+  }
+
+  /**
+   * Start capturing the value of every parameter when it is collected.
+   *
+   * @param newParameterObject
+   *          the parameter object of the statement
+   */
+  void captureValues(Object newParameterObject) {
+    this.parameterObject = newParameterObject;
+    this.parameterMappings.captureValues(newParameterObject);
+    this.capturedRoots = new ArrayList<>();
+  }
+
+  /**
+   * Leave to bind time the values that could have been changed by a {@code #set} after they were captured.
+   */
+  void completeCapture() {
+    if (this.capturedRoots == null) {
+      return;
+    }
+    for (int i = 0; i < this.capturedRoots.size(); i++) {
+      String root = this.capturedRoots.get(i);
+      if (root != null && this.context.containsKey(root)) {
+        this.parameterMappings.unresolve(i);
+      }
+    }
+  }
+
   public String g(int mapping) {
     ParameterMapping parameterMapping = this.parameterMappingSources[mapping];
-    PropertyInfo vi = getPropertyInfo(parameterMapping.getProperty());
-    if (vi.isIterable) {
-      parameterMapping = itemize(parameterMapping, vi);
-      this.context.put(vi.root, this.context.get(this.itemKey));
+    if (this.itemKey != null && this.itemKey.equals(this.propertyPaths.roots[mapping])) {
+      Object item = this.context.get(this.itemKey);
+      String path = this.propertyPaths.paths[mapping];
+      String itemName = ItemizedMappings.itemName(this.uid++);
+      parameterMapping = itemize(mapping, itemName);
+      this.context.put(itemName, item);
+      if (this.capturedRoots != null) {
+        this.parameterMappings.addValue(resolveItemValue(item, path));
+        this.capturedRoots.add(null);
+      }
+    } else if (this.capturedRoots != null) {
+      captureParameterValue(parameterMapping.getProperty(), this.propertyPaths.names[mapping]);
+    }
+    this.parameterMappings.add(parameterMapping);
+    return "?";
+  }
+
+  /**
+   * Return whether a parameter can be bound for all items of a loop as one array, which requires the parameter to refer
+   * to the loop item.
+   */
+  boolean canBindArray(int mapping, String var) {
+    return var != null && var.equals(this.propertyPaths.roots[mapping]);
+  }
+
+  /**
+   * Bind the values of a parameter for all items of a loop as one array parameter.
+   *
+   * @param mapping
+   *          the index of the parameter mapping source
+   * @param items
+   *          the loop items
+   *
+   * @return the parameter marker
+   */
+  String bindArray(int mapping, List<?> items) {
+    ParameterMapping source = this.parameterMappingSources[mapping];
+    String path = this.propertyPaths.paths[mapping];
+    Object[] values = new Object[items.size()];
+    Class<?> componentType = null;
+    for (int i = 0; i < values.length; i++) {
+      Object item = items.get(i);
+      Object value = path.isEmpty() || item == null ? item
+          : this.configuration.newMetaObject(item).getValue(path.substring(1));
+      if (value != null) {
+        if (componentType == null) {
+          componentType = value.getClass();
+        }
+        while (!componentType.isInstance(value)) {
+          componentType = componentType.getSuperclass();
+        }
+      }
+      values[i] = value;
+    }
+    Object[] array = (Object[]) Array.newInstance(componentType == null ? Object.class : componentType,
+        values.length);
+    System.arraycopy(values, 0, array, 0, values.length);
+
+    if (this.itemScopes != null) {
+      // An array parameter is not bound per item, so a shape cache cannot replay it
+      this.itemScopes.add(null);
+      this.itemIndexes.add(-1);
+    }
+    String itemName = ItemizedMappings.itemName(this.uid++);
+    ParameterMapping parameterMapping = new ParameterMapping.Builder(this.configuration, itemName, array.getClass())
+        .mode(source.getMode()).jdbcType(JdbcType.ARRAY).typeHandler(ARRAY_TYPE_HANDLER).build();
+    this.context.put(itemName, array);
+    if (this.capturedRoots != null) {
+      this.parameterMappings.addValue(array);
+      this.capturedRoots.add(null);
     }
     this.parameterMappings.add(parameterMapping);
     return "?";
@@ -62,41 +211,49 @@ public class ParameterMappingCollector {
     return this.parameterMappings;
   }
 
-  private ParameterMapping itemize(ParameterMapping source, PropertyInfo var) {
-    StringBuilder sb = new StringBuilder().append("_RPTITEM_").append(this.uid++);
-    var.root = sb.toString();
-    String propertyName = sb.append(var.path).toString();
-    ParameterMapping.Builder builder = new ParameterMapping.Builder(this.configuration, propertyName,
-        source.getJavaType());
-    builder.expression(source.getExpression()).jdbcType(source.getJdbcType()).jdbcTypeName(source.getJdbcTypeName())
-        .mode(source.getMode()).numericScale(source.getNumericScale()).resultMapId(source.getResultMapId())
-        .typeHandler(source.getTypeHandler());
-    return builder.build();
-  }
-
-  private PropertyInfo getPropertyInfo(String name) {
-    PropertyInfo i = new PropertyInfo();
-    if (name != null) {
-      int p = name.indexOf('.');
-      if (p == -1) {
-        i.root = name;
-      } else {
-        i.root = name.substring(0, p);
-        i.path = name.substring(p);
-      }
+  private ParameterMapping itemize(int mapping, String itemName) {
+    if (this.itemScopes != null) {
+      boolean tracked = this.itemScope != null && this.itemScope.getVar().equals(this.itemKey);
+      this.itemScopes.add(tracked ? this.itemScope : null);
+      this.itemIndexes.add(tracked ? this.itemScope.getIndex() : -1);
     }
-    i.isIterable = this.itemKey != null && this.itemKey.equals(i.root);
-    return i;
+    return this.itemizedMappings.get(mapping, itemName);
   }
 
-  static class PropertyInfo {
-    boolean isIterable = false;
-    String root = "";
-    String path = "";
+  private Object resolveItemValue(Object item, String path) {
+    if (path.isEmpty() || item == null) {
+      return item;
+    }
+    try {
+      return this.configuration.newMetaObject(item).getValue(path.substring(1));
+    } catch (RuntimeException e) {
+      return CapturedParameterMappings.UNRESOLVED;
+    }
+  }
 
-    public PropertyInfo() {
-      // Prevent synthetic access
+  private void captureParameterValue(String property, String root) {
+    if (root == null || this.context.containsKey(root)) {
+      this.parameterMappings.addValue(CapturedParameterMappings.UNRESOLVED);
+      this.capturedRoots.add(null);
+      return;
+    }
+    Object value;
+    try {
+      if (this.parameterObject == null) {
+        value = null;
+      } else if (this.configuration.getTypeHandlerRegistry().hasTypeHandler(this.parameterObject.getClass())) {
+        value = this.parameterObject;
+      } else {
+        if (this.parameterMetaObject == null) {
+          this.parameterMetaObject = this.configuration.newMetaObject(this.parameterObject);
+        }
+        value = this.parameterMetaObject.getValue(property);
+      }
+    } catch (RuntimeException e) {
+      value = CapturedParameterMappings.UNRESOLVED;
     }
+    this.parameterMappings.addValue(value);
+    this.capturedRoots.add(root);
   }
 
 }
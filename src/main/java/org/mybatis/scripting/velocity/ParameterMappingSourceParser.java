@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -25,9 +25,6 @@ import org.apache.ibatis.builder.ParameterExpression;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
-import org.apache.ibatis.reflection.DefaultReflectorFactory;
-import org.apache.ibatis.reflection.MetaClass;
-import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 
@@ -40,7 +37,13 @@ public class ParameterMappingSourceParser {
   private final ParameterMapping[] parameterMappingSources;
 
   public ParameterMappingSourceParser(Configuration configuration, String script, Class<?> parameterType) {
-    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType);
+    this(configuration, script, parameterType, new GetterTypeCache());
+  }
+
+  ParameterMappingSourceParser(Configuration configuration, String script, Class<?> parameterType,
+      GetterTypeCache getterTypeCache) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType,
+        getterTypeCache);
     GenericTokenParser parser = new GenericTokenParser("@{", "}", handler);
     this.sql = parser.parse(script);
     this.parameterMappingSources = handler.getParameterMappingSources();
@@ -58,10 +61,13 @@ public class ParameterMappingSourceParser {
 
     private final List<ParameterMapping> parameterMappings = new ArrayList<>();
     private final Class<?> parameterType;
+    private final GetterTypeCache getterTypeCache;
 
-    public ParameterMappingTokenHandler(Configuration newConfiguration, Class<?> newParameterType) {
+    public ParameterMappingTokenHandler(Configuration newConfiguration, Class<?> newParameterType,
+        GetterTypeCache newGetterTypeCache) {
       super(newConfiguration);
       this.parameterType = newParameterType;
+      this.getterTypeCache = newGetterTypeCache;
     }
 
     public ParameterMapping[] getParameterMappingSources() {
@@ -87,13 +93,8 @@ public class ParameterMappingSourceParser {
       } else if (JdbcType.CURSOR.name().equals(jdbcType)) {
         propertyType = java.sql.ResultSet.class;
       } else if (property != null) {
-        ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
-        MetaClass metaClass = MetaClass.forClass(this.parameterType, reflectorFactory);
-        if (metaClass.hasGetter(property)) {
-          propertyType = metaClass.getGetterType(property);
-        } else {
-          propertyType = Object.class;
-        }
+        propertyType = this.getterTypeCache.getGetterType(this.configuration.getReflectorFactory(), this.parameterType,
+            property);
       } else {
         propertyType = Object.class;
       }
@@ -0,0 +1,159 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTIdentifier;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Describes the parameter object of a render without its values: the type of each property referenced by the
+ * statement, whether it is {@code null}, and the size of the collections, maps and arrays.
+ */
+final class ParameterShape {
+
+  private static final int MAX_PROPERTIES = 32;
+
+  private ParameterShape() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Return the properties of the parameter object that a statement references, with {@code @{}} parameters or with
+   * {@code $_parameter.name} references.
+   *
+   * @param propertyPaths
+   *          the properties of the parameter mappings
+   * @param template
+   *          the parsed template, or {@code null} if the script is static
+   *
+   * @return the property names
+   */
+  static String[] referencedProperties(PropertyPaths propertyPaths, Template template) {
+    Set<String> properties = new LinkedHashSet<>();
+    Set<String> variables = new HashSet<>();
+    if (template != null && template.getData() instanceof Node) {
+      collect((Node) template.getData(), properties, variables);
+    }
+    for (String root : propertyPaths.roots) {
+      int index = root.indexOf('[');
+      String name = index == -1 ? root : root.substring(0, index);
+      if (!name.isEmpty() && !variables.contains(name)
+          && !name.startsWith(ParameterMappingCollector.ITEM_PREFIX)) {
+        properties.add(name);
+      }
+    }
+    properties.removeAll(variables);
+    return properties.toArray(new String[0]);
+  }
+
+  /**
+   * Collect the {@code $_parameter.name} properties and the variables set by {@code #set} and the loop directives.
+   */
+  static void collect(Node node, Set<String> properties, Set<String> variables) {
+    if (node instanceof ASTReference) {
+      ASTReference reference = (ASTReference) node;
+      if (SQLScriptSource.PARAMETER_OBJECT_KEY.equals(reference.getRootString()) && node.jjtGetNumChildren() > 0
+          && node.jjtGetChild(0) instanceof ASTIdentifier) {
+        properties.add(node.jjtGetChild(0).getFirstToken().image);
+      }
+    } else if (node instanceof ASTSetDirective && node.jjtGetNumChildren() > 0
+        && node.jjtGetChild(0) instanceof ASTReference) {
+      variables.add(((ASTReference) node.jjtGetChild(0)).getRootString());
+    } else if (node instanceof ASTDirective) {
+      // The loop variables: #foreach($item in ...), #repeat(... $item), #in(... $item), #values(... $item)
+      int variable = "foreach".equals(((ASTDirective) node).getDirectiveName()) ? 0 : 1;
+      if (node.jjtGetNumChildren() > variable + 1 && node.jjtGetChild(variable) instanceof ASTReference) {
+        variables.add(((ASTReference) node.jjtGetChild(variable)).getRootString());
+      }
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      collect(node.jjtGetChild(i), properties, variables);
+    }
+  }
+
+  /**
+   * Describe a parameter object.
+   *
+   * @param configuration
+   *          the MyBatis configuration
+   * @param parameterObject
+   *          the parameter object
+   * @param properties
+   *          the properties to describe
+   *
+   * @return the description, like {@code Parameter{ids=ArrayList[20000], name=null}}
+   */
+  static String describe(Configuration configuration, Object parameterObject, String[] properties) {
+    if (parameterObject == null || properties.length == 0
+        || configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())
+        || parameterObject instanceof Collection || parameterObject.getClass().isArray()) {
+      return describe(parameterObject);
+    }
+    MetaObject metaObject = configuration.newMetaObject(parameterObject);
+    StringBuilder shape = new StringBuilder(parameterObject.getClass().getSimpleName()).append('{');
+    int count = 0;
+    for (String property : properties) {
+      if (!metaObject.hasGetter(property)) {
+        continue;
+      }
+      if (count > 0) {
+        shape.append(", ");
+      }
+      if (++count > MAX_PROPERTIES) {
+        shape.append("...");
+        break;
+      }
+      Object value;
+      try {
+        value = metaObject.getValue(property);
+      } catch (RuntimeException e) {
+        value = e;
+      }
+      shape.append(property).append('=').append(value instanceof RuntimeException ? "?" : describe(value));
+    }
+    return shape.append('}').toString();
+  }
+
+  private static String describe(Object value) {
+    if (value == null) {
+      return "null";
+    }
+    String type = value.getClass().getSimpleName();
+    if (value instanceof Collection) {
+      return type + "[" + ((Collection<?>) value).size() + "]";
+    } else if (value instanceof Map) {
+      return type + "[" + ((Map<?, ?>) value).size() + "]";
+    } else if (value.getClass().isArray()) {
+      String componentType = value.getClass().getComponentType().getSimpleName();
+      return componentType + "[" + Array.getLength(value) + "]";
+    }
+    return type;
+  }
+
+}
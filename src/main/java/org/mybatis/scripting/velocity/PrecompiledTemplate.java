@@ -0,0 +1,61 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.runtime.RuntimeServices;
+
+/**
+ * A template rendered by a {@link TemplateRenderer} instead of being interpreted by Velocity.
+ * <p>
+ * The engine settings that the renderer depends on are read once here.
+ * </p>
+ */
+final class PrecompiledTemplate {
+
+  private final TemplateRenderer renderer;
+  private final RuntimeServices rsvc;
+  private final String name;
+  private final OutputSizeHint outputSize = new OutputSizeHint(64);
+  final boolean checkEmpty;
+
+  PrecompiledTemplate(TemplateRenderer renderer, RuntimeServices rsvc, String name) {
+    this.renderer = renderer;
+    this.rsvc = rsvc;
+    this.name = name;
+    this.checkEmpty = rsvc.getBoolean("directive.if.empty_check", true);
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  String merge(VelocityContext context) {
+    final SQLWriter out = this.outputSize.newWriter();
+    try {
+      this.renderer.render(new RenderContext(this, this.rsvc, new InternalContextAdapterImpl(context), out));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.outputSize.record(out.length());
+    return out.toString();
+  }
+
+}
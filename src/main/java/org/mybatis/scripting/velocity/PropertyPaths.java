@@ -0,0 +1,54 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+
+/**
+ * The property of each parameter mapping source, split once per statement.
+ */
+final class PropertyPaths {
+
+  /** The property part before the first '.', or an empty string. */
+  final String[] roots;
+
+  /** The property part from the first '.', or an empty string. */
+  final String[] paths;
+
+  /** The name resolved as an additional parameter by MyBatis, or {@code null} if there is no property. */
+  final String[] names;
+
+  PropertyPaths(ParameterMapping[] parameterMappingSources) {
+    final int n = parameterMappingSources.length;
+    this.roots = new String[n];
+    this.paths = new String[n];
+    this.names = new String[n];
+    for (int i = 0; i < n; i++) {
+      String property = parameterMappingSources[i].getProperty();
+      if (property == null) {
+        this.roots[i] = "";
+        this.paths[i] = "";
+        continue;
+      }
+      int p = property.indexOf('.');
+      this.roots[i] = p == -1 ? property : property.substring(0, p);
+      this.paths[i] = p == -1 ? "" : property.substring(p);
+      this.names[i] = new PropertyTokenizer(property).getName();
+    }
+  }
+
+}
@@ -0,0 +1,583 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.ChainedInternalContextAdapter;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.exception.VelocityException;
+import org.apache.velocity.runtime.Renderable;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.util.DuckType;
+import org.apache.velocity.util.introspection.Info;
+import org.apache.velocity.util.introspection.Uberspect;
+import org.apache.velocity.util.introspection.VelMethod;
+import org.apache.velocity.util.introspection.VelPropertyGet;
+
+/**
+ * The operations a {@link TemplateRenderer} is made of, with the same semantics as the Velocity nodes and directives
+ * they are translated from.
+ * <p>
+ * The output and the context are those of the innermost block being rendered: the loop directives render each item
+ * with their own context and writer.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public final class RenderContext {
+
+  private static final String LEFT_KEY = "_rc_left";
+  private static final String RIGHT_KEY = "_rc_right";
+  private static final String ITEMS_KEY = "_rc_items";
+  private static final String BLOCK_KEY = "_rc_block";
+
+  private final PrecompiledTemplate template;
+  private final RuntimeServices rsvc;
+  private final ParameterMappingCollector collector;
+  private InternalContextAdapter context;
+  private Writer writer;
+  private InternalContextAdapter operands;
+
+  RenderContext(PrecompiledTemplate template, RuntimeServices rsvc, InternalContextAdapter context, Writer writer) {
+    this.template = template;
+    this.rsvc = rsvc;
+    this.context = context;
+    this.writer = writer;
+    this.collector = (ParameterMappingCollector) context.get(SQLScriptSource.MAPPING_COLLECTOR_KEY);
+  }
+
+  /**
+   * Write a text.
+   *
+   * @param text
+   *          the text
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void write(String text) throws IOException {
+    this.writer.write(text);
+  }
+
+  /**
+   * Write a parameter placeholder, like {@code $_pmc.g(index)}.
+   *
+   * @param index
+   *          the index of the {@code @{}} parameter in the script
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void parameter(int index) throws IOException {
+    this.writer.write(this.collector.g(index));
+  }
+
+  /**
+   * Write the value of a reference, or its literal when the value is {@code null}.
+   *
+   * @param value
+   *          the value
+   * @param literal
+   *          the literal of the reference, or an empty string for a quiet reference
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void render(Object value, String literal) throws IOException {
+    if (value instanceof Renderable && ((Renderable) value).render(this.context, this.writer)) {
+      return;
+    }
+    String text = value == null ? null : DuckType.asString(value);
+    this.writer.write(text == null ? literal : text);
+  }
+
+  /**
+   * Render a node of a parsed template, like a {@code #set} that the runtime translation delegates to Velocity.
+   */
+  void render(Node node) throws IOException {
+    node.render(this.context, this.writer);
+  }
+
+  /**
+   * Return the value of a variable.
+   *
+   * @param name
+   *          the variable name
+   *
+   * @return the value, or {@code null}
+   */
+  public Object get(String name) {
+    return this.context.get(name);
+  }
+
+  /**
+   * Return a property of an object, like {@code $target.name}.
+   *
+   * @param target
+   *          the object, can be {@code null}
+   * @param site
+   *          the property site
+   *
+   * @return the property value, or {@code null}
+   */
+  public Object property(Object target, Site site) {
+    if (target == null) {
+      return null;
+    }
+    Uberspect uberspect = this.rsvc.getUberspect();
+    Introspected cached = site.introspected;
+    VelPropertyGet getter;
+    if (cached != null && cached.uberspect == uberspect && cached.type == target.getClass()) {
+      getter = cached.getter;
+    } else {
+      getter = uberspect.getPropertyGet(target, site.name, site.info);
+      if (getter == null) {
+        return null;
+      }
+      site.introspected = new Introspected(uberspect, target.getClass(), getter);
+    }
+    try {
+      return getter.invoke(target);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw invocationError(site, e);
+    }
+  }
+
+  /**
+   * Invoke a method of an object, like {@code $target.name(args)}.
+   *
+   * @param target
+   *          the object, can be {@code null}
+   * @param site
+   *          the method site
+   * @param args
+   *          the arguments
+   *
+   * @return the returned value, or {@code null}
+   */
+  public Object invoke(Object target, Site site, Object... args) {
+    if (target == null) {
+      return null;
+    }
+    VelMethod method = this.rsvc.getUberspect().getMethod(target, site.name, args, site.info);
+    if (method == null) {
+      return null;
+    }
+    try {
+      return method.invoke(target, args);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw invocationError(site, e);
+    }
+  }
+
+  private static VelocityException invocationError(Site site, Exception e) {
+    Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+    return new VelocityException("Invocation of '" + site.name + "' at " + site.info + " threw exception " + cause,
+        cause);
+  }
+
+  /**
+   * Return whether a value is true in a condition, like {@code #if($value)}. The value is converted by Velocity's
+   * {@link DuckType}, which also checks it is not empty unless the {@code directive.if.empty_check} property of the
+   * template engine is {@code false}.
+   *
+   * @param value
+   *          the value
+   *
+   * @return {@code true} if the value is true
+   */
+  public boolean isTrue(Object value) {
+    return DuckType.asBoolean(value, this.template.checkEmpty);
+  }
+
+  /**
+   * Compare two values, like {@code $left == $right}.
+   * <p>
+   * The comparison is evaluated by the node the template engine parses for its operator, so that numbers, strings and
+   * values of different types compare as in an interpreted template.
+   * </p>
+   *
+   * @param site
+   *          the comparison site, named after its operator: {@code ==}, {@code !=}, {@code <}, {@code <=}, {@code >}
+   *          or {@code >=}
+   * @param left
+   *          the left value
+   * @param right
+   *          the right value
+   *
+   * @return the result of the comparison
+   */
+  public boolean compare(Site site, Object left, Object right) {
+    Node comparison = site.directive(this.rsvc, () -> parse(this.rsvc, site,
+        "#if($" + LEFT_KEY + " " + site.name + " $" + RIGHT_KEY + ")#end").jjtGetChild(0).jjtGetChild(0));
+    InternalContextAdapter values = this.operands;
+    if (values == null) {
+      values = new InternalContextAdapterImpl(new VelocityContext());
+      this.operands = values;
+    }
+    assign(values, LEFT_KEY, left);
+    assign(values, RIGHT_KEY, right);
+    return comparison.evaluate(values);
+  }
+
+  /**
+   * Render a block like {@code #where()}.
+   *
+   * @param site
+   *          the directive site
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void where(Site site, Block block) throws IOException {
+    TrimDirective.render(WhereDirective.PARAMS, this.context, adapt(block), this.writer, site.outputSize());
+  }
+
+  /**
+   * Render a block like {@code #mset()}.
+   *
+   * @param site
+   *          the directive site
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void mset(Site site, Block block) throws IOException {
+    TrimDirective.render(SetDirective.PARAMS, this.context, adapt(block), this.writer, site.outputSize());
+  }
+
+  /**
+   * Render a block like {@code #trim(prefix prefixOverrides suffix suffixOverrides)}.
+   *
+   * @param site
+   *          the directive site
+   * @param prefix
+   *          the prefix
+   * @param prefixOverrides
+   *          the prefix overrides, separated by {@code |}
+   * @param suffix
+   *          the suffix
+   * @param suffixOverrides
+   *          the suffix overrides, separated by {@code |}
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void trim(Site site, String prefix, String prefixOverrides, String suffix, String suffixOverrides,
+      Block block) throws IOException {
+    TrimDirective.Params params = site.directive(null,
+        () -> TrimDirective.paramsOf(prefix, prefixOverrides, suffix, suffixOverrides));
+    TrimDirective.render(params, this.context, adapt(block), this.writer, site.outputSize());
+  }
+
+  /**
+   * Render a block for each item of a collection like {@code #repeat($collection $item separator open close)}.
+   *
+   * @param collection
+   *          the collection
+   * @param site
+   *          the directive site, named after the item variable
+   * @param separator
+   *          the separator
+   * @param open
+   *          the opening text
+   * @param close
+   *          the closing text
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void repeat(Object collection, Site site, String separator, String open, String close, Block block)
+      throws IOException {
+    RepeatDirective directive = site.directive(this.rsvc, () -> {
+      RepeatDirective repeat = new RepeatDirective();
+      repeat.configure(this.rsvc, site.name, separator, open, close, site.info);
+      return repeat;
+    });
+    directive.render(this.context, this.writer, collection, adapt(block));
+  }
+
+  /**
+   * Render a block for each item of a collection like {@code #in($collection $item column binding)}.
+   *
+   * @param collection
+   *          the collection
+   * @param site
+   *          the directive site, named after the item variable
+   * @param column
+   *          the column
+   * @param binding
+   *          {@code "array"}, {@code "expand"} or {@code null}
+   * @param arrayMapping
+   *          the index of the parameter when the block is a single parameter, or {@code -1}
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void in(Object collection, Site site, String column, String binding, int arrayMapping, Block block)
+      throws IOException {
+    InDirective directive = site.directive(this.rsvc, () -> {
+      InDirective in = new InDirective();
+      in.configure(this.rsvc, site.name, column, binding == null ? null : "array".equals(binding), arrayMapping,
+          site.info);
+      return in;
+    });
+    directive.render(this.context, this.writer, collection, adapt(block));
+  }
+
+  /**
+   * Render a block for each item of a collection like {@code #foreach($item in $collection)}.
+   *
+   * @param collection
+   *          the collection
+   * @param site
+   *          the directive site, named after the item variable
+   * @param block
+   *          the block
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  public void foreach(Object collection, Site site, Block block) throws IOException {
+    // The engine's #foreach iterates, so that its settings and its $foreach scope apply
+    Node foreach = site.directive(this.rsvc,
+        () -> parse(this.rsvc, site, "#foreach($" + site.name + " in $" + ITEMS_KEY + ")${" + BLOCK_KEY + "}#end"));
+    final BlockRenderer body = adapt(block);
+    Renderable renderable = (blockContext, blockWriter) -> {
+      body.render(blockContext, blockWriter);
+      return true;
+    };
+    foreach.render(new LoopContext(this.context, collection, renderable), this.writer);
+  }
+
+  private static void assign(InternalContextAdapter context, String key, Object value) {
+    if (value != null) {
+      context.put(key, value);
+    } else {
+      context.remove(key);
+    }
+  }
+
+  /**
+   * Parse the template a site delegates to, with the settings of the template engine.
+   */
+  private static Node parse(RuntimeServices rsvc, Site site, String source) {
+    Template template = new Template();
+    template.setRuntimeServices(rsvc);
+    template.setName(site.info.getTemplateName());
+    try {
+      template.setData(rsvc.parse(new StringReader(source), template));
+      template.initDocument();
+    } catch (ParseException e) {
+      throw new VelocityException("Cannot parse '" + source + "' for " + site.info, e);
+    }
+    return (Node) template.getData();
+  }
+
+  /**
+   * Render a block with the context and writer of a directive.
+   */
+  private BlockRenderer adapt(Block block) {
+    return (blockContext, blockWriter) -> {
+      final InternalContextAdapter outer = this.context;
+      final Writer out = this.writer;
+      this.context = blockContext;
+      this.writer = blockWriter;
+      try {
+        block.render();
+      } finally {
+        this.context = outer;
+        this.writer = out;
+      }
+    };
+  }
+
+  /**
+   * The context of a delegated {@code #foreach}, which holds the collection and the block on top of the caller's
+   * context, so that the caller's variables are left as they are while the {@code #set} of the block still reach them.
+   */
+  private static final class LoopContext extends ChainedInternalContextAdapter {
+
+    private final Object items;
+    private final Renderable block;
+
+    LoopContext(InternalContextAdapter context, Object items, Renderable block) {
+      super(context);
+      this.items = items;
+      this.block = block;
+    }
+
+    @Override
+    public Object get(String key) {
+      if (ITEMS_KEY.equals(key)) {
+        return this.items;
+      }
+      return BLOCK_KEY.equals(key) ? this.block : super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+      return ITEMS_KEY.equals(key) || BLOCK_KEY.equals(key) || super.containsKey(key);
+    }
+
+  }
+
+  /**
+   * A block of a template.
+   */
+  @FunctionalInterface
+  public interface Block {
+
+    /**
+     * Render the block.
+     *
+     * @throws IOException
+     *           if the output cannot be written
+     */
+    void render() throws IOException;
+
+  }
+
+  /**
+   * The location of a property, method or directive in a template, which caches what it resolves.
+   */
+  public static final class Site {
+
+    private final String name;
+    private final Info info;
+    private volatile Introspected introspected;
+    private volatile Configured configured;
+    private volatile OutputSizeHint outputSize;
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     *          the property or method name, the operator of a comparison, or the item variable of a loop
+     * @param templateName
+     *          the template name, for error messages
+     * @param line
+     *          the line in the template
+     * @param column
+     *          the column in the template
+     */
+    public Site(String name, String templateName, int line, int column) {
+      this.name = name;
+      this.info = new Info(templateName, line, column);
+    }
+
+    /**
+     * Return the name of the site.
+     *
+     * @return the property or method name, the operator of a comparison, or the item variable of a loop
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Return the line of the site.
+     *
+     * @return the line in the template
+     */
+    public int getLine() {
+      return this.info.getLine();
+    }
+
+    /**
+     * Return the column of the site.
+     *
+     * @return the column in the template
+     */
+    public int getColumn() {
+      return this.info.getColumn();
+    }
+
+    /**
+     * Return the object configured for a template engine, creating it on first use.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T directive(RuntimeServices rsvc, Supplier<T> factory) {
+      Configured current = this.configured;
+      if (current == null || current.rsvc != rsvc) {
+        current = new Configured(rsvc, factory.get());
+        this.configured = current;
+      }
+      return (T) current.value;
+    }
+
+    OutputSizeHint outputSize() {
+      OutputSizeHint hint = this.outputSize;
+      if (hint == null) {
+        hint = new OutputSizeHint(16);
+        this.outputSize = hint;
+      }
+      return hint;
+    }
+
+  }
+
+  private static final class Introspected {
+
+    final Uberspect uberspect;
+    final Class<?> type;
+    final VelPropertyGet getter;
+
+    Introspected(Uberspect uberspect, Class<?> type, VelPropertyGet getter) {
+      this.uberspect = uberspect;
+      this.type = type;
+      this.getter = getter;
+    }
+
+  }
+
+  private static final class Configured {
+
+    final RuntimeServices rsvc;
+    final Object value;
+
+    Configured(RuntimeServices rsvc, Object value) {
+      this.rsvc = rsvc;
+      this.value = value;
+    }
+
+  }
+
+}
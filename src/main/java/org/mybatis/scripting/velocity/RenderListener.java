@@ -0,0 +1,50 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+/**
+ * Receives the renders of the velocity statements of a {@link VelocityLanguageDriver}.
+ * <p>
+ * A listener is called by the thread that renders the statement, right after the render, including the renders whose
+ * SQL comes from the shape cache. It must be thread safe, and fast: slow work (e.g. a report) should be deferred. An
+ * exception thrown by a listener is logged and ignored.
+ * </p>
+ * <p>
+ * Listeners are created from their class names with the {@code render-listeners} property, or added with
+ * {@link VelocityLanguageDriver#addRenderListener(RenderListener)}.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+@FunctionalInterface
+public interface RenderListener {
+
+  /**
+   * Called after a statement has been rendered.
+   *
+   * @param statement
+   *          the statement name: the id of the mapped statement when the statement comes from a mapper XML file,
+   *          otherwise a name derived from its script
+   * @param elapsedNanos
+   *          the render time, in nanoseconds
+   * @param outputLength
+   *          the length of the rendered SQL
+   * @param parameterCount
+   *          the number of bound parameters
+   */
+  void onRender(String statement, long elapsedNanos, int outputLength, int parameterCount);
+
+}
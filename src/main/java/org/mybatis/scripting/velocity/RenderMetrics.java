@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RenderListener} that counts the renders, the render times, the SQL lengths and the bound parameters of
+ * each statement.
+ * <p>
+ * The counters are {@link LongAdder}s, so the threads that render concurrently do not contend on them. The statistics
+ * are read with {@link #getStatistics(String)} or, when the {@code render-metrics-jmx} property is enabled, through
+ * JMX.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public final class RenderMetrics implements RenderListener, RenderMetricsMXBean {
+
+  /**
+   * The statement name of the renders counted once {@value #MAX_STATEMENTS} statements are counted.
+   */
+  public static final String OTHER_STATEMENTS = "(other)";
+
+  /**
+   * The maximum number of statements counted separately.
+   */
+  public static final int MAX_STATEMENTS = 10_000;
+
+  private final ConcurrentMap<String, Counters> statements = new ConcurrentHashMap<>();
+
+  @Override
+  public void onRender(String statement, long elapsedNanos, int outputLength, int parameterCount) {
+    Counters counters = this.statements.get(statement);
+    if (counters == null) {
+      String name = this.statements.size() < MAX_STATEMENTS ? statement : OTHER_STATEMENTS;
+      counters = this.statements.computeIfAbsent(name, k -> new Counters());
+    }
+    counters.record(elapsedNanos, outputLength, parameterCount);
+  }
+
+  /**
+   * Get the statistics of a statement.
+   *
+   * @param statement
+   *          the statement name
+   *
+   * @return the statistics, or {@code null} if the statement has not been rendered
+   */
+  public RenderStatistics getStatistics(String statement) {
+    Counters counters = this.statements.get(statement);
+    return counters == null ? null : counters.snapshot(statement);
+  }
+
+  @Override
+  public List<RenderStatistics> getStatistics() {
+    Map<String, Counters> sorted = new TreeMap<>(this.statements);
+    List<RenderStatistics> statistics = new ArrayList<>(sorted.size());
+    sorted.forEach((statement, counters) -> statistics.add(counters.snapshot(statement)));
+    return statistics;
+  }
+
+  @Override
+  public long getRenderCount() {
+    long count = 0;
+    for (Counters counters : this.statements.values()) {
+      count += counters.count.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public void reset() {
+    this.statements.clear();
+  }
+
+  private static final class Counters {
+
+    final LongAdder count = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    final LongAdder outputLength = new LongAdder();
+    final LongAdder parameterCount = new LongAdder();
+    final LongAdder[] histogram = new LongAdder[RenderStatistics.BUCKETS];
+
+    Counters() {
+      for (int i = 0; i < this.histogram.length; i++) {
+        this.histogram[i] = new LongAdder();
+      }
+    }
+
+    void record(long elapsedNanos, int length, int parameters) {
+      this.count.increment();
+      this.nanos.add(elapsedNanos);
+      this.maxNanos.accumulate(elapsedNanos);
+      this.outputLength.add(length);
+      this.parameterCount.add(parameters);
+      this.histogram[RenderStatistics.bucketOf(elapsedNanos)].increment();
+    }
+
+    RenderStatistics snapshot(String statement) {
+      long[] buckets = new long[this.histogram.length];
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = this.histogram[i].sum();
+      }
+      return new RenderStatistics(statement, this.count.sum(), this.nanos.sum(), this.maxNanos.get(),
+          this.outputLength.sum(), this.parameterCount.sum(), buckets);
+    }
+
+  }
+
+}
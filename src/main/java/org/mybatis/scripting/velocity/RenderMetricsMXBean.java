@@ -0,0 +1,46 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.List;
+
+/**
+ * The JMX view of {@link RenderMetrics}.
+ *
+ * @since 2.3.2
+ */
+public interface RenderMetricsMXBean {
+
+  /**
+   * Get the statistics of each statement.
+   *
+   * @return the statistics, sorted by statement name
+   */
+  List<RenderStatistics> getStatistics();
+
+  /**
+   * Get the number of renders of all the statements.
+   *
+   * @return the number of renders
+   */
+  long getRenderCount();
+
+  /**
+   * Clear the statistics.
+   */
+  void reset();
+
+}
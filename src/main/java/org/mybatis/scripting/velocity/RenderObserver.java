@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.List;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Notify the render listeners and the slow render sampler of the renders of a statement, whether its script is static
+ * or a template.
+ */
+final class RenderObserver {
+
+  private static final Log log = LogFactory.getLog(RenderObserver.class);
+
+  private final Configuration configuration;
+  private final String statementName;
+  private final List<RenderListener> renderListeners;
+  private final SlowRenderSampler slowRenderSampler;
+
+  RenderObserver(Configuration newConfiguration, String newStatementName, List<RenderListener> newRenderListeners,
+      SlowRenderSampler newSlowRenderSampler) {
+    this.configuration = newConfiguration;
+    this.statementName = newStatementName;
+    this.renderListeners = newRenderListeners;
+    this.slowRenderSampler = newSlowRenderSampler;
+  }
+
+  /**
+   * Return whether the renders are observed, so that they have to be timed.
+   */
+  boolean isObserving() {
+    return !this.renderListeners.isEmpty() || this.slowRenderSampler != null;
+  }
+
+  boolean isSampling() {
+    return this.slowRenderSampler != null;
+  }
+
+  /**
+   * Notify a render of the statement.
+   *
+   * @param parameterObject
+   *          the parameter object
+   * @param boundSql
+   *          the rendered SQL
+   * @param elapsed
+   *          the render time in nanoseconds
+   * @param referencedProperties
+   *          the properties of the parameter object described in a sample
+   */
+  void rendered(Object parameterObject, BoundSql boundSql, long elapsed, String[] referencedProperties) {
+    if (this.slowRenderSampler != null && this.slowRenderSampler.isSlow(elapsed)) {
+      String shape;
+      try {
+        shape = ParameterShape.describe(this.configuration, parameterObject, referencedProperties);
+      } catch (RuntimeException e) {
+        shape = "?";
+      }
+      this.slowRenderSampler.record(this.statementName, elapsed, boundSql.getSql().length(),
+          boundSql.getParameterMappings().size(), shape);
+    }
+    for (RenderListener listener : this.renderListeners) {
+      try {
+        listener.onRender(this.statementName, elapsed, boundSql.getSql().length(),
+            boundSql.getParameterMappings().size());
+      } catch (RuntimeException e) {
+        // A listener does not fail the statement
+        log.debug("Error notifying a render of '" + this.statementName + "': " + e);
+      }
+    }
+  }
+
+}
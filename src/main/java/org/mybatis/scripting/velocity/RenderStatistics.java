@@ -0,0 +1,182 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+/**
+ * The render statistics of a statement, at the time they were read from {@link RenderMetrics}.
+ * <p>
+ * The render times are counted in a histogram of {@value #BUCKETS} buckets: bucket {@code 0} counts the renders
+ * shorter than 1 microsecond, and bucket {@code i} the renders from 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds,
+ * the last bucket counting all the longer ones.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public final class RenderStatistics {
+
+  /**
+   * The number of buckets of the render time histogram.
+   */
+  public static final int BUCKETS = 32;
+
+  private final String statement;
+  private final long renderCount;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final long totalOutputLength;
+  private final long totalParameterCount;
+  private final long[] latencyHistogram;
+
+  RenderStatistics(String statement, long renderCount, long totalNanos, long maxNanos, long totalOutputLength,
+      long totalParameterCount, long[] latencyHistogram) {
+    this.statement = statement;
+    this.renderCount = renderCount;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.totalOutputLength = totalOutputLength;
+    this.totalParameterCount = totalParameterCount;
+    this.latencyHistogram = latencyHistogram;
+  }
+
+  /**
+   * Return the histogram bucket of a render time.
+   */
+  static int bucketOf(long elapsedNanos) {
+    long micros = elapsedNanos / 1000;
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * Get the statement name.
+   *
+   * @return the statement name
+   */
+  public String getStatement() {
+    return statement;
+  }
+
+  /**
+   * Get the number of renders.
+   *
+   * @return the number of renders
+   */
+  public long getRenderCount() {
+    return renderCount;
+  }
+
+  /**
+   * Get the total render time.
+   *
+   * @return the total render time, in nanoseconds
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Get the longest render time.
+   *
+   * @return the longest render time, in nanoseconds
+   */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Get the mean render time.
+   *
+   * @return the mean render time, in microseconds
+   */
+  public double getMeanMicros() {
+    return renderCount == 0 ? 0 : totalNanos / 1000.0 / renderCount;
+  }
+
+  /**
+   * Get the median render time, rounded up to the upper bound of its histogram bucket.
+   *
+   * @return the median render time, in microseconds
+   */
+  public long getMedianMicros() {
+    return getPercentileMicros(50);
+  }
+
+  /**
+   * Get the 99th percentile of the render time, rounded up to the upper bound of its histogram bucket.
+   *
+   * @return the 99th percentile of the render time, in microseconds
+   */
+  public long getP99Micros() {
+    return getPercentileMicros(99);
+  }
+
+  /**
+   * Get a percentile of the render time, rounded up to the upper bound of its histogram bucket.
+   *
+   * @param percentile
+   *          the percentile, from {@code 0} to {@code 100}
+   *
+   * @return the percentile of the render time, in microseconds, or {@code 0} if the statement has not been rendered
+   */
+  public long getPercentileMicros(double percentile) {
+    long count = 0;
+    for (long bucket : latencyHistogram) {
+      count += bucket;
+    }
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < latencyHistogram.length; i++) {
+      seen += latencyHistogram[i];
+      if (seen >= rank && seen > 0) {
+        return i == BUCKETS - 1 ? maxNanos / 1000 : 1L << i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Get the total length of the rendered SQL.
+   *
+   * @return the total length
+   */
+  public long getTotalOutputLength() {
+    return totalOutputLength;
+  }
+
+  /**
+   * Get the total number of bound parameters.
+   *
+   * @return the total number of parameters
+   */
+  public long getTotalParameterCount() {
+    return totalParameterCount;
+  }
+
+  /**
+   * Get the number of renders in each bucket of the render time histogram.
+   *
+   * @return the histogram, a copy
+   */
+  public long[] getLatencyHistogram() {
+    return latencyHistogram.clone();
+  }
+
+  @Override
+  public String toString() {
+    return "RenderStatistics [statement=" + statement + ", renderCount=" + renderCount + ", meanMicros="
+        + getMeanMicros() + ", p99Micros=" + getP99Micros() + ", maxNanos=" + maxNanos + "]";
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2024 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 package org.mybatis.scripting.velocity;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Iterator;
 
@@ -87,10 +86,30 @@ public class RepeatDirective extends Directive {
     this.uberInfo = new Info(this.getTemplateName(), getLine(), getColumn());
   }
 
+  /**
+   * Configure a directive rendered by a {@link TemplateRenderer}, instead of initializing it from a node.
+   */
+  void configure(RuntimeServices rs, String newVar, String newSeparator, String newOpen, String newClose,
+      Info newUberInfo) {
+    this.rsvc = rs;
+    this.var = newVar;
+    this.separator = newSeparator;
+    this.open = newOpen;
+    this.close = newClose;
+    this.uberInfo = newUberInfo;
+  }
+
   @Override
   public boolean render(InternalContextAdapter context, Writer writer, Node node) throws IOException {
-
     Object listObject = node.jjtGetChild(0).value(context);
+    return render(context, writer, listObject, node.jjtGetChild(node.jjtGetNumChildren() - 1)::render);
+  }
+
+  /**
+   * Render the block for each item of a collection.
+   */
+  boolean render(InternalContextAdapter context, Writer writer, Object listObject, BlockRenderer block)
+      throws IOException {
 
     if (listObject == null) {
       return false;
@@ -119,12 +138,13 @@ public class RepeatDirective extends Directive {
     ParameterMappingCollector collector = (ParameterMappingCollector) context
         .get(SQLScriptSource.MAPPING_COLLECTOR_KEY);
     String savedItemKey = collector.getItemKey();
-    collector.setItemKey(this.var);
-    RepeatScope foreach = new RepeatScope(this, context.get(getName()), this.var);
+    RepeatScope savedItemScope = collector.getItemScope();
+    RepeatScope foreach = new RepeatScope(this, context.get(getName()), this.var, this.uberInfo);
+    collector.setItemScope(foreach);
     context.put(getName(), foreach);
 
     NullHolderContext nullHolderContext = null;
-    StringWriter buffer = new StringWriter();
+    TrimmingWriter body = new TrimmingWriter(writer, this.open);
     while (!maxNbrLoopsExceeded && i.hasNext()) {
       Object value = i.next();
       put(context, this.var, value);
@@ -136,18 +156,18 @@ public class RepeatDirective extends Directive {
           if (nullHolderContext == null) {
             nullHolderContext = new NullHolderContext(this.var, context);
           }
-          node.jjtGetChild(node.jjtGetNumChildren() - 1).render(nullHolderContext, buffer);
+          block.render(nullHolderContext, body);
         } else {
-          node.jjtGetChild(node.jjtGetNumChildren() - 1).render(context, buffer);
+          block.render(context, body);
         }
       } catch (StopCommand stop) {
         if (stop.isFor(this)) {
           break;
         }
-        clean(context, o, collector, savedItemKey);
+        clean(context, o, collector, savedItemKey, savedItemScope);
         // close does not perform any action and this is here
         // to avoid eclipse reporting possible leak.
-        buffer.close();
+        body.close();
         throw stop;
       }
 
@@ -155,17 +175,14 @@ public class RepeatDirective extends Directive {
       maxNbrLoopsExceeded = counter >= MAX_IN_CLAUSE_SIZE;
 
       if (i.hasNext() && !maxNbrLoopsExceeded) {
-        buffer.append(this.separator);
+        body.append(this.separator);
       }
 
     }
-    String content = buffer.toString().trim();
-    if (!"".equals(content)) {
-      writer.append(this.open);
-      writer.append(content);
+    if (body.isStarted()) {
       writer.append(this.close);
     }
-    clean(context, o, collector, savedItemKey);
+    clean(context, o, collector, savedItemKey, savedItemScope);
     return true;
 
   }
@@ -181,6 +198,12 @@ public class RepeatDirective extends Directive {
     postRender(context);
   }
 
+  protected void clean(InternalContextAdapter context, Object o, ParameterMappingCollector collector,
+      String savedItemKey, RepeatScope savedItemScope) {
+    collector.setItemScope(savedItemScope);
+    clean(context, o, collector, savedItemKey);
+  }
+
   protected void put(InternalContextAdapter context, String key, Object value) {
     context.put(key, value);
   }
@@ -195,10 +218,16 @@ public class RepeatDirective extends Directive {
     protected int index = -1;
     protected boolean hasNext = false;
     protected final String var;
+    protected final Info info;
 
     public RepeatScope(Object newOwner, Object replaces, String newVar) {
+      this(newOwner, replaces, newVar, null);
+    }
+
+    public RepeatScope(Object newOwner, Object replaces, String newVar, Info newInfo) {
       super(newOwner, replaces);
       this.var = newVar;
+      this.info = newInfo;
     }
 
     public int getIndex() {
@@ -237,6 +266,18 @@ public class RepeatDirective extends Directive {
       return this.var;
     }
 
+    /**
+     * Return the location of the directive that owns this scope, which is the same whether the directive is
+     * interpreted or rendered by a {@link TemplateRenderer}.
+     *
+     * @return the location, or {@code null} if unknown
+     *
+     * @since 2.3.2
+     */
+    public Info getInfo() {
+      return this.info;
+    }
+
   }
 
   protected static class NullHolderContext extends ChainedInternalContextAdapter {
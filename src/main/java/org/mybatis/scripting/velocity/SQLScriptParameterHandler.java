@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The parameter handler that binds the values captured by {@link ParameterMappingCollector} while rendering.
+ * <p>
+ * The captured values are handed to {@link DefaultParameterHandler} as additional parameters of the bound SQL, so that
+ * it binds them with its own type handling, and resolves the values that are not captured as usual. Falls back to it
+ * unchanged when the bound SQL does not carry captured values for its parameter object (e.g. it has been rebuilt by a
+ * plugin).
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public class SQLScriptParameterHandler extends DefaultParameterHandler {
+
+  private final MappedStatement mappedStatement;
+  private final Object parameterObject;
+  private final BoundSql boundSql;
+
+  public SQLScriptParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
+    super(mappedStatement, parameterObject, boundSql);
+    this.mappedStatement = mappedStatement;
+    this.parameterObject = parameterObject;
+    this.boundSql = boundSql;
+  }
+
+  @Override
+  public void setParameters(PreparedStatement ps) throws SQLException {
+    List<ParameterMapping> parameterMappings = this.boundSql.getParameterMappings();
+    if (!(parameterMappings instanceof CapturedParameterMappings)
+        || !((CapturedParameterMappings) parameterMappings).isCapturedFor(this.parameterObject)) {
+      super.setParameters(ps);
+      return;
+    }
+    CapturedParameterMappings captured = (CapturedParameterMappings) parameterMappings;
+    Map<String, Object> values = new HashMap<>();
+    for (int i = 0; i < captured.size(); i++) {
+      Object value = captured.getValue(i);
+      if (value != CapturedParameterMappings.UNRESOLVED) {
+        String property = captured.get(i).getProperty();
+        if (values.containsKey(property) && !Objects.equals(values.get(property), value)) {
+          // The same property was rendered with different values, let it be resolved at bind time
+          super.setParameters(ps);
+          return;
+        }
+        values.put(property, value);
+      }
+    }
+    BoundSql capturedSql = new CapturedBoundSql(this.mappedStatement.getConfiguration(), this.boundSql, values);
+    new DefaultParameterHandler(this.mappedStatement, this.parameterObject, capturedSql).setParameters(ps);
+  }
+
+  /**
+   * A bound SQL whose additional parameters are the captured values, then the ones of the rendered bound SQL.
+   */
+  private static final class CapturedBoundSql extends BoundSql {
+
+    private final BoundSql boundSql;
+    private final Map<String, Object> values;
+
+    CapturedBoundSql(Configuration configuration, BoundSql boundSql, Map<String, Object> values) {
+      super(configuration, boundSql.getSql(), boundSql.getParameterMappings(), boundSql.getParameterObject());
+      this.boundSql = boundSql;
+      this.values = values;
+    }
+
+    @Override
+    public boolean hasAdditionalParameter(String name) {
+      return this.values.containsKey(name) || this.boundSql.hasAdditionalParameter(name);
+    }
+
+    @Override
+    public Object getAdditionalParameter(String name) {
+      return this.values.containsKey(name) ? this.values.get(name) : this.boundSql.getAdditionalParameter(name);
+    }
+
+    @Override
+    public void setAdditionalParameter(String name, Object value) {
+      this.boundSql.setAdditionalParameter(name, value);
+    }
+
+    @Override
+    public Map<String, Object> getAdditionalParameters() {
+      return this.boundSql.getAdditionalParameters();
+    }
+
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,13 +15,27 @@
  */
 package org.mybatis.scripting.velocity;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.session.Configuration;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapterImpl;
 
 public class SQLScriptSource implements SqlSource {
 
@@ -30,40 +44,264 @@ public class SQLScriptSource implements SqlSource {
   protected static final String MAPPING_COLLECTOR_KEY = "_pmc";
   protected static final String VARIABLES_KEY = "_vars";
 
-  private static int templateIndex = 0;
+  private static final Log log = LogFactory.getLog(SQLScriptSource.class);
+
+  private static final AtomicInteger templateIndex = new AtomicInteger();
 
-  private final ParameterMapping[] parameterMappingSources;
-  private final Object compiledScript;
   private final Configuration configuration;
+  private final VelocityFacade velocityFacade;
+  private final int shapeCacheSize;
+  private final String templateName;
+  private final String statementName;
+  private final RenderObserver renderObserver;
+  private final boolean warmUpIntrospection;
+  private final Class<?> parameterTypeClass;
+  private final GetterTypeCache getterTypeCache;
+  private final int renderCompileThreshold;
+  private final Supplier<Executor> renderCompileExecutor;
+  private final AtomicReference<String> script;
+  private volatile Compiled compiled;
 
   public SQLScriptSource(Configuration newConfiguration, String script, Class<?> parameterTypeClass) {
+    this(newConfiguration, script, parameterTypeClass, VelocityFacade.getSharedInstance(), 0, new GetterTypeCache(),
+        VelocityLanguageDriverConfig.CompileMode.EAGER, 0, null, null, Collections.emptyList(), null, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param newConfiguration
+   *          the MyBatis configuration
+   * @param script
+   *          the velocity script
+   * @param parameterTypeClass
+   *          the parameter type
+   * @param driver
+   *          the language driver that provides the template engine and the settings
+   *
+   * @since 2.3.2
+   */
+  public SQLScriptSource(Configuration newConfiguration, String script, Class<?> parameterTypeClass,
+      VelocityLanguageDriver driver) {
+    this(newConfiguration, script, parameterTypeClass, driver, null);
+  }
+
+  SQLScriptSource(Configuration newConfiguration, String script, Class<?> parameterTypeClass,
+      VelocityLanguageDriver driver, String statementName) {
+    this(newConfiguration, script, parameterTypeClass, driver.getVelocityFacade(),
+        driver.getDriverConfig().getShapeCacheSize(), driver.getGetterTypeCache(),
+        driver.getDriverConfig().isValidateTemplates() ? VelocityLanguageDriverConfig.CompileMode.EAGER
+            : driver.getDriverConfig().getCompileMode(),
+        driver.getDriverConfig().getRenderCompileThreshold(), driver::getCompileExecutor, statementName,
+        driver.getRenderListeners(), driver.getSlowRenderSampler(), driver.getDriverConfig().isWarmUpIntrospection());
+  }
+
+  private SQLScriptSource(Configuration newConfiguration, String script, Class<?> parameterTypeClass,
+      VelocityFacade velocityFacade, int shapeCacheSize, GetterTypeCache getterTypeCache,
+      VelocityLanguageDriverConfig.CompileMode compileMode, int renderCompileThreshold,
+      Supplier<Executor> renderCompileExecutor, String statementName, List<RenderListener> renderListeners,
+      SlowRenderSampler slowRenderSampler, boolean warmUpIntrospection) {
     this.configuration = newConfiguration;
-    ParameterMappingSourceParser mappingParser = new ParameterMappingSourceParser(newConfiguration, script,
-        parameterTypeClass);
-    this.parameterMappingSources = mappingParser.getParameterMappingSources();
-    this.compiledScript = VelocityFacade.compile(mappingParser.getSql(), "velocity-template-" + (++templateIndex));
+    this.velocityFacade = velocityFacade;
+    this.shapeCacheSize = shapeCacheSize;
+    this.templateName = "velocity-template-" + templateIndex.incrementAndGet();
+    this.statementName = statementName(statementName, script);
+    this.renderObserver = new RenderObserver(newConfiguration, this.statementName, renderListeners,
+        slowRenderSampler);
+    this.warmUpIntrospection = warmUpIntrospection;
+    this.script = new AtomicReference<>(script);
+    this.parameterTypeClass = parameterTypeClass;
+    this.getterTypeCache = getterTypeCache;
+    this.renderCompileThreshold = renderCompileExecutor == null ? 0 : renderCompileThreshold;
+    this.renderCompileExecutor = renderCompileExecutor;
+    // In the parallel compile mode, the driver submits the compilation once the source is constructed
+    if (compileMode == VelocityLanguageDriverConfig.CompileMode.EAGER) {
+      compiled();
+    }
+  }
+
+  /**
+   * Return the name of a statement in logs and render notifications.
+   */
+  static String statementName(String statementName, String script) {
+    // A statement that is not named is named after its script, which is the same for each statement of a provider
+    return statementName != null ? statementName : "velocity-script-" + Integer.toHexString(script.hashCode());
+  }
+
+  /**
+   * Compile the script in background, unless it is already compiled. Until it is, a render compiles it or waits for it.
+   *
+   * @param executor
+   *          the executor that compiles the script
+   */
+  void compileInBackground(Executor executor) {
+    if (this.compiled != null) {
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        compiled();
+      } catch (RuntimeException e) {
+        // The compilation is retried, and fails the statement, on first use
+        log.warn("Error compiling statement '" + this.statementName + "' in background: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Return the compiled script, parsing and compiling it on the first call.
+   */
+  private Compiled compiled() {
+    Compiled result = this.compiled;
+    if (result == null) {
+      synchronized (this) {
+        result = this.compiled;
+        if (result == null) {
+          result = new Compiled(this.configuration, this.script.get(), this.parameterTypeClass, this.velocityFacade,
+              this.templateName, this.shapeCacheSize, this.getterTypeCache, this.renderCompileThreshold,
+              this.renderObserver.isSampling(), this.warmUpIntrospection);
+          if (this.warmUpIntrospection) {
+            warmUp(result);
+          }
+          this.compiled = result;
+          // The script is not needed anymore
+          this.script.set(null);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void warmUp(Compiled result) {
+    for (String problem : IntrospectionWarmUp.warmUp(this.velocityFacade, this.configuration, this.parameterTypeClass,
+        result.propertyPaths, result.parsed)) {
+      log.warn("Statement '" + this.statementName + "': " + problem);
+    }
+    // The parsed template is not needed anymore
+    result.parsed = null;
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
+    if (!this.renderObserver.isObserving()) {
+      return render(parameterObject);
+    }
+    final long start = System.nanoTime();
+    final BoundSql boundSql = render(parameterObject);
+    this.renderObserver.rendered(parameterObject, boundSql, System.nanoTime() - start,
+        compiled().referencedProperties);
+    return boundSql;
+  }
 
+  private BoundSql render(Object parameterObject) {
+
+    final Compiled script = compiled();
     final Map<String, Object> context = new HashMap<>();
-    final ParameterMappingCollector pmc = new ParameterMappingCollector(this.parameterMappingSources, context,
-        this.configuration);
+    final ParameterMappingCollector pmc = new ParameterMappingCollector(script.parameterMappingSources,
+        script.propertyPaths, script.itemizedMappings, context, this.configuration);
 
     context.put(DATABASE_ID_KEY, this.configuration.getDatabaseId());
     context.put(PARAMETER_OBJECT_KEY, parameterObject);
     context.put(MAPPING_COLLECTOR_KEY, pmc);
     context.put(VARIABLES_KEY, this.configuration.getVariables());
 
-    final String sql = VelocityFacade.apply(this.compiledScript, context);
+    final VelocityContext velocityContext = this.velocityFacade.newContext(context);
+    final TemplateShape.Probe probe = script.shape == null ? null
+        : script.shape.fingerprint(new InternalContextAdapterImpl(velocityContext), this.configuration.getDatabaseId());
+    if (probe != null) {
+      TemplateShape.Rendered rendered = script.shapeCache.get(probe.getKey());
+      if (rendered != null) {
+        BoundSql boundSql = new BoundSql(this.configuration, rendered.getSql(),
+            new ArrayList<>(rendered.getParameterMappings()), parameterObject);
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+          boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
+        }
+        rendered.bindItems(probe, boundSql);
+        return boundSql;
+      }
+      pmc.recordItemSources();
+    }
+
+    if (script.renders != null && script.renders.get() < this.renderCompileThreshold
+        && script.renders.incrementAndGet() == this.renderCompileThreshold) {
+      translate(script);
+    }
+
+    pmc.captureValues(parameterObject);
+    final String sql = this.velocityFacade.merge(script.template, velocityContext);
+    pmc.completeCapture();
     BoundSql boundSql = new BoundSql(this.configuration, sql, pmc.getParameterMappings(), parameterObject);
     for (Map.Entry<String, Object> entry : context.entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
     }
 
+    if (probe != null && script.shapeCache.size() < this.shapeCacheSize) {
+      TemplateShape.Rendered rendered = script.shape.capture(sql, pmc);
+      if (rendered != null) {
+        script.shapeCache.putIfAbsent(probe.getKey(), rendered);
+      }
+    }
+
     return boundSql;
 
   }
 
+  /**
+   * Translate the template of a script that is rendered often, in background. The renders that start before it is
+   * translated use the parsed template.
+   */
+  private void translate(Compiled script) {
+    final Object parsed = script.template;
+    this.renderCompileExecutor.get().execute(() -> {
+      try {
+        Object translated = this.velocityFacade.translateTemplate(parsed);
+        if (translated != null) {
+          script.template = translated;
+        }
+      } catch (RuntimeException e) {
+        log.debug("Error translating '" + this.templateName + "' in background: " + e);
+      }
+    });
+  }
+
+  /**
+   * The parameter mappings and the template of a script, with the caches that depend on them.
+   */
+  private static final class Compiled {
+
+    private final ParameterMapping[] parameterMappingSources;
+    private final PropertyPaths propertyPaths;
+    private final ItemizedMappings itemizedMappings;
+    private volatile Object template;
+    private final TemplateShape shape;
+    private final ConcurrentMap<TemplateShape.Key, TemplateShape.Rendered> shapeCache;
+    private final AtomicInteger renders;
+    private final String[] referencedProperties;
+    private Template parsed;
+
+    Compiled(Configuration configuration, String script, Class<?> parameterTypeClass, VelocityFacade velocityFacade,
+        String templateName, int shapeCacheSize, GetterTypeCache getterTypeCache, int renderCompileThreshold,
+        boolean sampled, boolean warmUp) {
+      ParameterMappingSourceParser mappingParser = new ParameterMappingSourceParser(configuration, script,
+          parameterTypeClass, getterTypeCache);
+      this.parameterMappingSources = mappingParser.getParameterMappingSources();
+      this.propertyPaths = new PropertyPaths(this.parameterMappingSources);
+      this.itemizedMappings = new ItemizedMappings(configuration, this.parameterMappingSources, this.propertyPaths);
+      this.template = velocityFacade.compileTemplate(mappingParser.getSql(), templateName);
+      // A precompiled template is analyzed by the parsed template, as it has the same references and loops
+      Template parsed = this.template instanceof Template ? (Template) this.template : null;
+      if (parsed == null && (shapeCacheSize > 0 || sampled || warmUp)) {
+        parsed = velocityFacade.parseTemplate(mappingParser.getSql(), templateName);
+      }
+      this.shape = shapeCacheSize > 0 ? TemplateShape.analyze(parsed) : null;
+      this.shapeCache = this.shape == null ? null : new ConcurrentHashMap<>();
+      this.renders = renderCompileThreshold > 0 && !(this.template instanceof PrecompiledTemplate) ? new AtomicInteger()
+          : null;
+      // Collected now, as the template may be translated before the first slow render
+      this.referencedProperties = sampled ? ParameterShape.referencedProperties(this.propertyPaths, parsed) : null;
+      this.parsed = warmUp ? parsed : null;
+    }
+
+  }
+
 }
@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Unsynchronized writer backed by a {@link StringBuilder}, which can be read and edited in place.
+ */
+final class SQLWriter extends Writer implements CharSequence {
+
+  private final StringBuilder buffer;
+
+  SQLWriter(int capacity) {
+    this.buffer = new StringBuilder(capacity);
+  }
+
+  @Override
+  public void write(int c) {
+    this.buffer.append((char) c);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) {
+    this.buffer.append(cbuf, off, len);
+  }
+
+  @Override
+  public void write(String str) {
+    this.buffer.append(str);
+  }
+
+  @Override
+  public void write(String str, int off, int len) {
+    this.buffer.append(str, off, off + len);
+  }
+
+  @Override
+  public SQLWriter append(CharSequence csq) {
+    this.buffer.append(csq);
+    return this;
+  }
+
+  @Override
+  public SQLWriter append(CharSequence csq, int start, int end) {
+    this.buffer.append(csq, start, end);
+    return this;
+  }
+
+  @Override
+  public SQLWriter append(char c) {
+    this.buffer.append(c);
+    return this;
+  }
+
+  @Override
+  public void flush() {
+    // Nothing to flush
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  @Override
+  public int length() {
+    return this.buffer.length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return this.buffer.charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return this.buffer.subSequence(start, end);
+  }
+
+  void setLength(int length) {
+    this.buffer.setLength(length);
+  }
+
+  /**
+   * Replace the characters from start to end with a string followed by a character.
+   */
+  void replace(int start, int end, String str, char c) {
+    if (end > start) {
+      this.buffer.replace(start, end - 1, str);
+      this.buffer.setCharAt(start + str.length(), c);
+    } else {
+      this.buffer.insert(start, c);
+      this.buffer.insert(start, str);
+    }
+  }
+
+  void writeTo(Writer out) throws IOException {
+    out.append(this.buffer);
+  }
+
+  /**
+   * Same as {@code toString().trim()}, but copies the buffer only once.
+   */
+  String toTrimmedString() {
+    int end = this.buffer.length();
+    int start = 0;
+    while (start < end && this.buffer.charAt(start) <= ' ') {
+      start++;
+    }
+    while (start < end && this.buffer.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return this.buffer.substring(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return this.buffer.toString();
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.time.Instant;
+
+/**
+ * A slow render recorded by a {@link SlowRenderSampler}.
+ *
+ * @since 2.3.2
+ */
+public final class SlowRender {
+
+  private final long sequence;
+  private final String statement;
+  private final Instant timestamp;
+  private final long elapsedNanos;
+  private final int outputLength;
+  private final int parameterCount;
+  private final String parameterShape;
+
+  SlowRender(long sequence, String statement, Instant timestamp, long elapsedNanos, int outputLength,
+      int parameterCount, String parameterShape) {
+    this.sequence = sequence;
+    this.statement = statement;
+    this.timestamp = timestamp;
+    this.elapsedNanos = elapsedNanos;
+    this.outputLength = outputLength;
+    this.parameterCount = parameterCount;
+    this.parameterShape = parameterShape;
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Get the statement name.
+   *
+   * @return the statement name, see {@link RenderListener#onRender(String, long, int, int)}
+   */
+  public String getStatement() {
+    return statement;
+  }
+
+  /**
+   * Get when the render ended.
+   *
+   * @return the end of the render
+   */
+  public Instant getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Get the render time.
+   *
+   * @return the render time, in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the length of the rendered SQL.
+   *
+   * @return the length of the SQL
+   */
+  public int getOutputLength() {
+    return outputLength;
+  }
+
+  /**
+   * Get the number of bound parameters.
+   *
+   * @return the number of parameters
+   */
+  public int getParameterCount() {
+    return parameterCount;
+  }
+
+  /**
+   * Get the shape of the parameter object: the type of each property referenced by the statement, whether it is
+   * {@code null}, and the size of the collections, maps and arrays, but none of the values.
+   *
+   * @return the parameter shape, like {@code Parameter{ids=ArrayList[20000], name=null}}
+   */
+  public String getParameterShape() {
+    return parameterShape;
+  }
+
+  @Override
+  public String toString() {
+    return "SlowRender [statement=" + statement + ", timestamp=" + timestamp + ", elapsedMillis="
+        + elapsedNanos / 1_000_000.0 + ", outputLength=" + outputLength + ", parameterCount=" + parameterCount
+        + ", parameterShape=" + parameterShape + "]";
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent renders that took longer than a threshold, with the shape of their parameter object.
+ * <p>
+ * The samples are kept in a lock-free ring buffer: a render claims a slot with an atomic counter and overwrites the
+ * oldest sample, so recording never blocks a render, and reading the samples never blocks recording.
+ * </p>
+ *
+ * @since 2.3.2
+ *
+ * @see VelocityLanguageDriverConfig#setSlowRenderThreshold(int)
+ */
+public final class SlowRenderSampler {
+
+  private final long thresholdNanos;
+  private final AtomicReferenceArray<SlowRender> samples;
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param thresholdMillis
+   *          the render time from which a render is recorded, in milliseconds
+   * @param capacity
+   *          the number of samples kept
+   */
+  public SlowRenderSampler(int thresholdMillis, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+    }
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    this.samples = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Return whether a render is slow enough to be recorded.
+   */
+  boolean isSlow(long elapsedNanos) {
+    return elapsedNanos >= this.thresholdNanos;
+  }
+
+  /**
+   * Record a slow render.
+   */
+  void record(String statement, long elapsedNanos, int outputLength, int parameterCount, String parameterShape) {
+    long index = this.sequence.getAndIncrement();
+    this.samples.set((int) (index % this.samples.length()), new SlowRender(index, statement, Instant.now(),
+        elapsedNanos, outputLength, parameterCount, parameterShape));
+  }
+
+  /**
+   * Get the recorded samples.
+   *
+   * @return the most recent samples, the latest first
+   */
+  public List<SlowRender> getSamples() {
+    long last = this.sequence.get();
+    int capacity = this.samples.length();
+    List<SlowRender> result = new ArrayList<>(capacity);
+    for (long index = last - 1; index >= 0 && index >= last - capacity; index--) {
+      SlowRender sample = this.samples.get((int) (index % capacity));
+      // A slot may be overwritten by a newer sample, or not written yet
+      if (sample != null && sample.getSequence() == index) {
+        result.add(sample);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the number of slow renders recorded since the sampler was created, including those that are not kept anymore.
+   *
+   * @return the number of slow renders
+   */
+  public long getSampleCount() {
+    return this.sequence.get();
+  }
+
+  /**
+   * Clear the samples.
+   */
+  public void clear() {
+    for (int i = 0; i < this.samples.length(); i++) {
+      this.samples.set(i, null);
+    }
+  }
+
+}
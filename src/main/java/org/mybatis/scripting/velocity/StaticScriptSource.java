@@ -0,0 +1,101 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The {@link SqlSource} for scripts without any VTL reference or directive.
+ * <p>
+ * The SQL and the parameter mappings are built once, so no template is merged at runtime. The renders are observed
+ * and the parameters are checked like the ones of a {@link SQLScriptSource}.
+ * </p>
+ */
+final class StaticScriptSource implements SqlSource {
+
+  private static final Log log = LogFactory.getLog(StaticScriptSource.class);
+
+  private final Configuration configuration;
+  private final String sql;
+  private final ParameterMapping[] parameterMappings;
+  private final RenderObserver renderObserver;
+  private final String[] referencedProperties;
+
+  StaticScriptSource(Configuration newConfiguration, String script, Class<?> parameterTypeClass,
+      VelocityLanguageDriver driver, String statementName) {
+    this.configuration = newConfiguration;
+    this.sql = new GenericTokenParser("@{", "}", content -> "?").parse(script);
+    this.parameterMappings = new ParameterMappingSourceParser(newConfiguration, script, parameterTypeClass,
+        driver.getGetterTypeCache()).getParameterMappingSources();
+    String name = SQLScriptSource.statementName(statementName, script);
+    this.renderObserver = new RenderObserver(newConfiguration, name, driver.getRenderListeners(),
+        driver.getSlowRenderSampler());
+    PropertyPaths propertyPaths = new PropertyPaths(this.parameterMappings);
+    this.referencedProperties = this.renderObserver.isSampling()
+        ? ParameterShape.referencedProperties(propertyPaths, null) : null;
+    if (driver.getDriverConfig().isWarmUpIntrospection()) {
+      for (String problem : IntrospectionWarmUp.warmUp(driver.getVelocityFacade(), newConfiguration,
+          parameterTypeClass, propertyPaths, null)) {
+        log.warn("Statement '" + name + "': " + problem);
+      }
+    }
+  }
+
+  /**
+   * Return whether a script renders to itself apart from its {@code @{...}} parameters, which means that it contains
+   * no {@code $} and no {@code #} outside of them.
+   *
+   * @param script
+   *          the velocity script
+   *
+   * @return {@code true} if the script is static
+   */
+  static boolean isStatic(String script) {
+    String text = new GenericTokenParser("@{", "}", content -> "").parse(script);
+    return text.indexOf('$') == -1 && text.indexOf('#') == -1;
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    if (!this.renderObserver.isObserving()) {
+      return render(parameterObject);
+    }
+    final long start = System.nanoTime();
+    final BoundSql boundSql = render(parameterObject);
+    this.renderObserver.rendered(parameterObject, boundSql, System.nanoTime() - start, this.referencedProperties);
+    return boundSql;
+  }
+
+  private BoundSql render(Object parameterObject) {
+    // A copy per call, as plugins may modify the parameter mappings of a bound SQL
+    BoundSql boundSql = new BoundSql(this.configuration, this.sql,
+        new ArrayList<>(Arrays.asList(this.parameterMappings)), parameterObject);
+    boundSql.setAdditionalParameter(SQLScriptSource.DATABASE_ID_KEY, this.configuration.getDatabaseId());
+    boundSql.setAdditionalParameter(SQLScriptSource.PARAMETER_OBJECT_KEY, parameterObject);
+    boundSql.setAdditionalParameter(SQLScriptSource.VARIABLES_KEY, this.configuration.getVariables());
+    return boundSql;
+  }
+
+}
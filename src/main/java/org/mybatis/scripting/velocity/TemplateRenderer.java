@@ -0,0 +1,47 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+
+/**
+ * A template translated to Java, that renders the same SQL as the interpreted template.
+ * <p>
+ * Renderers are generated at build time by the {@code mybatis-velocity-maven-plugin}, and picked up at runtime through
+ * a {@link TemplateRendererProvider}.
+ * </p>
+ * <p>
+ * A renderer is called instead of {@code Template.merge}: the template name is not pushed onto the context, and no
+ * macro library is set up, so a template that depends on either should not be translated.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+@FunctionalInterface
+public interface TemplateRenderer {
+
+  /**
+   * Render the template.
+   *
+   * @param context
+   *          the render context
+   *
+   * @throws IOException
+   *           if the output cannot be written
+   */
+  void render(RenderContext context) throws IOException;
+
+}
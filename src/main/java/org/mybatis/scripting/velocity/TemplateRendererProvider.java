@@ -0,0 +1,78 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Provides the {@link TemplateRenderer}s generated at build time, loaded with {@link java.util.ServiceLoader}.
+ * <p>
+ * When a renderer exists for a template, the template is neither parsed nor interpreted by Velocity. The templates are
+ * identified by the {@link #digest(String) digest} of their text, after the {@code @{}} parameters are replaced by the
+ * {@code $_pmc.g(index)} references.
+ * </p>
+ * <p>
+ * The renderers of a provider are only used by a template engine with the same configuration as the one they were
+ * generated for, as the output of a template depends on it.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public interface TemplateRendererProvider {
+
+  /**
+   * Return the renderer of a template.
+   *
+   * @param digest
+   *          the digest of the template text
+   *
+   * @return the renderer, or {@code null} if none is provided for this template
+   */
+  TemplateRenderer getRenderer(String digest);
+
+  /**
+   * Return the fingerprint of the configuration of the template engine the renderers were generated for.
+   *
+   * @return the fingerprint
+   *
+   * @see VelocityFacade#getFingerprint()
+   */
+  String getFingerprint();
+
+  /**
+   * Return the digest that identifies a template text.
+   *
+   * @param template
+   *          the template text
+   *
+   * @return the hexadecimal SHA-256 digest of the template text
+   */
+  static String digest(String template) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(template.getBytes(StandardCharsets.UTF_8));
+      StringBuilder digest = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        digest.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return digest.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,372 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.velocity.Template;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTComment;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTElseIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTElseStatement;
+import org.apache.velocity.runtime.parser.node.ASTIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.ASTTextblock;
+import org.apache.velocity.runtime.parser.node.ASTprocess;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.util.introspection.Info;
+import org.mybatis.scripting.velocity.RepeatDirective.RepeatScope;
+
+/**
+ * The structural shape of a compiled template.
+ * <p>
+ * A template has a shape when its output is fully determined by the outcome of its {@code #if}/{@code #elseif}
+ * conditions and by the sizes of the collections its loops iterate over: it renders no references other than
+ * {@code @{}} placeholders, uses no {@code #set} or unknown directives, and none of its conditions or loop collections
+ * depend on a loop variable. For such a template, two renders with the same fingerprint produce the same SQL and the
+ * same parameter mappings.
+ * </p>
+ */
+final class TemplateShape {
+
+  private static final int UNSUPPORTED = -2;
+
+  private final Node[] conditions;
+  private final Node[] collections;
+  private final Map<Long, Integer> loopOrdinals;
+
+  private TemplateShape(List<Node> conditions, List<Node> loops, List<Node> collections) {
+    this.conditions = conditions.toArray(new Node[0]);
+    this.collections = collections.toArray(new Node[0]);
+    this.loopOrdinals = new HashMap<>();
+    for (int i = 0; i < loops.size(); i++) {
+      this.loopOrdinals.put(location(loops.get(i).getLine(), loops.get(i).getColumn()), i);
+    }
+  }
+
+  /**
+   * Identify a loop by its location, as a template translated to a {@link TemplateRenderer} has no nodes.
+   */
+  private static Long location(int line, int column) {
+    return ((long) line << 32) | (column & 0xffffffffL);
+  }
+
+  /**
+   * Analyze a parsed template. The shape also applies to the {@link TemplateRenderer} of the same template text.
+   *
+   * @param template
+   *          a parsed template
+   *
+   * @return the shape of the template, or {@code null} if its output depends on values a fingerprint cannot capture
+   */
+  static TemplateShape analyze(Template template) {
+    Analyzer analyzer = new Analyzer();
+    if (!analyzer.visit((Node) template.getData(), Collections.emptySet())) {
+      return null;
+    }
+    return new TemplateShape(analyzer.conditions, analyzer.loops, analyzer.collections);
+  }
+
+  /**
+   * Compute the fingerprint of a render.
+   *
+   * @param context
+   *          the render context
+   * @param databaseId
+   *          the current database id
+   *
+   * @return the fingerprint, or {@code null} if this render cannot be fingerprinted
+   */
+  Probe fingerprint(InternalContextAdapter context, String databaseId) {
+    int[] values = new int[this.conditions.length + this.collections.length];
+    Object[] items = new Object[this.collections.length];
+    try {
+      for (int i = 0; i < this.conditions.length; i++) {
+        values[i] = this.conditions[i].evaluate(context) ? 1 : 0;
+      }
+      for (int i = 0; i < this.collections.length; i++) {
+        Object value = this.collections[i].value(context);
+        int size = sizeOf(value);
+        if (size == UNSUPPORTED) {
+          return null;
+        }
+        values[this.conditions.length + i] = size;
+        items[i] = value;
+      }
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return new Probe(new Key(values, databaseId), items);
+  }
+
+  /**
+   * Capture the result of a render for later reuse.
+   *
+   * @param sql
+   *          the rendered sql
+   * @param collector
+   *          the collector used by the render, which must have recorded its item sources
+   *
+   * @return the captured result, or {@code null} if an itemized parameter cannot be traced back to its loop
+   */
+  Rendered capture(String sql, ParameterMappingCollector collector) {
+    List<RepeatScope> scopes = collector.getItemScopes();
+    List<Integer> indexes = collector.getItemIndexes();
+    int[] itemLoops = new int[scopes.size()];
+    int[] itemIndexes = new int[scopes.size()];
+    for (int i = 0; i < itemLoops.length; i++) {
+      RepeatScope scope = scopes.get(i);
+      Info info = scope == null ? null : scope.getInfo();
+      Integer ordinal = info == null ? null : this.loopOrdinals.get(location(info.getLine(), info.getColumn()));
+      if (ordinal == null) {
+        return null;
+      }
+      itemLoops[i] = ordinal;
+      itemIndexes[i] = indexes.get(i);
+    }
+    return new Rendered(sql, collector.getParameterMappings(), itemLoops, itemIndexes);
+  }
+
+  private static int sizeOf(Object value) {
+    if (value == null) {
+      return -1;
+    } else if (value instanceof Collection) {
+      return ((Collection<?>) value).size();
+    } else if (value instanceof Map) {
+      return ((Map<?, ?>) value).size();
+    } else if (value.getClass().isArray()) {
+      return Array.getLength(value);
+    }
+    return UNSUPPORTED;
+  }
+
+  static final class Key {
+
+    private final int[] values;
+    private final String databaseId;
+    private final int hash;
+
+    Key(int[] values, String databaseId) {
+      this.values = values;
+      this.databaseId = databaseId;
+      this.hash = 31 * Arrays.hashCode(values) + Objects.hashCode(databaseId);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.hash == other.hash && Arrays.equals(this.values, other.values)
+          && Objects.equals(this.databaseId, other.databaseId);
+    }
+
+  }
+
+  /**
+   * The fingerprint of one render, together with the loop collections it was computed from.
+   */
+  static final class Probe {
+
+    private final Key key;
+    private final Object[] items;
+    private final Object[][] elements;
+
+    Probe(Key key, Object[] items) {
+      this.key = key;
+      this.items = items;
+      this.elements = new Object[items.length][];
+    }
+
+    Key getKey() {
+      return this.key;
+    }
+
+    Object element(int loop, int index) {
+      Object value = this.items[loop];
+      if (value instanceof List && value instanceof RandomAccess) {
+        return ((List<?>) value).get(index);
+      } else if (value.getClass().isArray()) {
+        return Array.get(value, index);
+      }
+      if (this.elements[loop] == null) {
+        this.elements[loop] = value instanceof Map ? ((Map<?, ?>) value).values().toArray()
+            : ((Collection<?>) value).toArray();
+      }
+      return this.elements[loop][index];
+    }
+
+  }
+
+  static final class Rendered {
+
+    private final String sql;
+    private final List<ParameterMapping> parameterMappings;
+    private final int[] itemLoops;
+    private final int[] itemIndexes;
+
+    Rendered(String sql, List<ParameterMapping> parameterMappings, int[] itemLoops, int[] itemIndexes) {
+      this.sql = sql;
+      this.parameterMappings = Collections.unmodifiableList(new ArrayList<>(parameterMappings));
+      this.itemLoops = itemLoops;
+      this.itemIndexes = itemIndexes;
+    }
+
+    String getSql() {
+      return this.sql;
+    }
+
+    List<ParameterMapping> getParameterMappings() {
+      return this.parameterMappings;
+    }
+
+    /**
+     * Bind the items of the current render under the names the captured mappings refer to.
+     */
+    void bindItems(Probe probe, BoundSql boundSql) {
+      for (int i = 0; i < this.itemLoops.length; i++) {
+        boundSql.setAdditionalParameter(ParameterMappingCollector.ITEM_PREFIX + i,
+            probe.element(this.itemLoops[i], this.itemIndexes[i]));
+      }
+    }
+
+  }
+
+  private static final class Analyzer {
+
+    private final List<Node> conditions = new ArrayList<>();
+    private final List<Node> loops = new ArrayList<>();
+    private final List<Node> collections = new ArrayList<>();
+
+    boolean visit(Node node, Set<String> loopVars) {
+      if (node instanceof ASTText || node instanceof ASTTextblock || node instanceof ASTComment) {
+        return true;
+      } else if (node instanceof ASTReference) {
+        return SQLScriptSource.MAPPING_COLLECTOR_KEY.equals(((ASTReference) node).getRootString());
+      } else if (node instanceof ASTIfStatement || node instanceof ASTElseIfStatement) {
+        Node condition = node.jjtGetChild(0);
+        if (!isIndependent(condition, loopVars)) {
+          return false;
+        }
+        this.conditions.add(condition);
+        return visitChildren(node, 1, loopVars);
+      } else if (node instanceof ASTDirective) {
+        return visitDirective((ASTDirective) node, loopVars);
+      } else if (node instanceof ASTprocess || node instanceof ASTBlock || node instanceof ASTElseStatement) {
+        return visitChildren(node, 0, loopVars);
+      }
+      return false;
+    }
+
+    private boolean visitChildren(Node node, int from, Set<String> loopVars) {
+      for (int i = from; i < node.jjtGetNumChildren(); i++) {
+        if (!visit(node.jjtGetChild(i), loopVars)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean visitDirective(ASTDirective node, Set<String> loopVars) {
+      String name = node.getDirectiveName();
+      int last = node.jjtGetNumChildren() - 1;
+      switch (name) {
+        case "where":
+        case "mset":
+          return visitChildren(node, 0, loopVars);
+        case "trim":
+          for (int i = 0; i < last; i++) {
+            if (!isConstant(node.jjtGetChild(i))) {
+              return false;
+            }
+          }
+          return visitChildren(node, last, loopVars);
+        case "foreach":
+          return visitLoop(node, node.jjtGetChild(2), node.jjtGetChild(0), name, loopVars);
+        case "repeat":
+        case "in":
+        case "values":
+          return visitLoop(node, node.jjtGetChild(0), node.jjtGetChild(1), name, loopVars);
+        default:
+          return false;
+      }
+    }
+
+    private boolean visitLoop(ASTDirective node, Node collection, Node var, String scopeName,
+        Set<String> loopVars) {
+      if (!(var instanceof ASTReference) || !isIndependent(collection, loopVars)) {
+        return false;
+      }
+      this.loops.add(node);
+      this.collections.add(collection);
+      Set<String> bodyLoopVars = new HashSet<>(loopVars);
+      bodyLoopVars.add(((ASTReference) var).getRootString());
+      bodyLoopVars.add(scopeName);
+      return visit(node.jjtGetChild(node.jjtGetNumChildren() - 1), bodyLoopVars);
+    }
+
+    private static boolean isIndependent(Node node, Set<String> loopVars) {
+      if (node instanceof ASTReference) {
+        String root = ((ASTReference) node).getRootString();
+        if (loopVars.contains(root) || SQLScriptSource.MAPPING_COLLECTOR_KEY.equals(root)) {
+          return false;
+        }
+      }
+      for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+        if (!isIndependent(node.jjtGetChild(i), loopVars)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isConstant(Node node) {
+      if (!(node instanceof ASTStringLiteral)) {
+        return false;
+      }
+      String literal = node.literal();
+      return literal.indexOf('$') < 0 && literal.indexOf('#') < 0;
+    }
+
+  }
+
+}
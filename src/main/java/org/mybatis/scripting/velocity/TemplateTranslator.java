@@ -0,0 +1,731 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.runtime.parser.node.ASTAndNode;
+import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTComment;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTEQNode;
+import org.apache.velocity.runtime.parser.node.ASTElseIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTElseStatement;
+import org.apache.velocity.runtime.parser.node.ASTEscapedDirective;
+import org.apache.velocity.runtime.parser.node.ASTExpression;
+import org.apache.velocity.runtime.parser.node.ASTFalse;
+import org.apache.velocity.runtime.parser.node.ASTFloatingPointLiteral;
+import org.apache.velocity.runtime.parser.node.ASTGENode;
+import org.apache.velocity.runtime.parser.node.ASTGTNode;
+import org.apache.velocity.runtime.parser.node.ASTIdentifier;
+import org.apache.velocity.runtime.parser.node.ASTIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTIntegerLiteral;
+import org.apache.velocity.runtime.parser.node.ASTLENode;
+import org.apache.velocity.runtime.parser.node.ASTLTNode;
+import org.apache.velocity.runtime.parser.node.ASTMethod;
+import org.apache.velocity.runtime.parser.node.ASTNENode;
+import org.apache.velocity.runtime.parser.node.ASTNotNode;
+import org.apache.velocity.runtime.parser.node.ASTOrNode;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.ASTTextblock;
+import org.apache.velocity.runtime.parser.node.ASTTrue;
+import org.apache.velocity.runtime.parser.node.ASTWord;
+import org.apache.velocity.runtime.parser.node.ASTprocess;
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Translates a parsed template to the {@link RenderContext} operations that render it.
+ * <p>
+ * The translator walks the template, validates it and decides what is supported; a {@link Backend} builds the
+ * renderer from the operations. The runtime builds a tree of closures, for the statements that are rendered often (see
+ * {@link VelocityLanguageDriverConfig#setRenderCompileThreshold(int)}), and the maven plugin generates Java sources.
+ * Texts, references, {@code @{}} parameters, {@code #if}, {@code #foreach}, {@code #where}, {@code #mset},
+ * {@code #trim}, {@code #repeat} and {@code #in} are supported, and {@code #set} when the backend supports it; a
+ * template that uses anything else (e.g. macros, arithmetic or interpolated strings) is not translated and stays
+ * interpreted.
+ * </p>
+ *
+ * @param <S>
+ *          the type of the translated statements
+ * @param <C>
+ *          the type of the translated conditions
+ * @param <V>
+ *          the type of the translated values
+ *
+ * @since 2.3.2
+ */
+public final class TemplateTranslator<S, C, V> {
+
+  private static final Log log = LogFactory.getLog(TemplateTranslator.class);
+
+  private final Backend<S, C, V> backend;
+  private final String templateName;
+  private final InternalContextAdapter emptyContext = new InternalContextAdapterImpl(new VelocityContext());
+
+  private TemplateTranslator(Backend<S, C, V> backend, String templateName) {
+    this.backend = backend;
+    this.templateName = templateName;
+  }
+
+  /**
+   * Translate a template.
+   *
+   * @param <S>
+   *          the type of the translated statements
+   * @param <C>
+   *          the type of the translated conditions
+   * @param <V>
+   *          the type of the translated values
+   * @param template
+   *          the parsed template
+   * @param backend
+   *          the backend that builds the renderer
+   *
+   * @return the translated template
+   *
+   * @throws UnsupportedTemplateException
+   *           if the template uses a construct that is not supported
+   */
+  public static <S, C, V> S translate(Template template, Backend<S, C, V> backend)
+      throws UnsupportedTemplateException {
+    Object root = template.getData();
+    if (!(root instanceof ASTprocess)) {
+      throw new UnsupportedTemplateException("the template is not parsed");
+    }
+    return new TemplateTranslator<>(backend, template.getName()).block((Node) root);
+  }
+
+  /**
+   * Translate a template to closures.
+   *
+   * @return the renderer, or {@code null} if the template uses a construct that is not supported
+   */
+  static TemplateRenderer toRenderer(Template template) {
+    try {
+      return translate(template, new ClosureBackend());
+    } catch (UnsupportedTemplateException e) {
+      log.debug("Template '" + template.getName() + "' stays interpreted: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Return whether a script is static SQL, which is not rendered by Velocity.
+   *
+   * @param script
+   *          the velocity script of a statement
+   *
+   * @return {@code true} if the script has neither references nor directives
+   */
+  public static boolean isStatic(String script) {
+    return StaticScriptSource.isStatic(script);
+  }
+
+  /**
+   * Return the template of a script, whose {@code @{}} parameters are replaced by the {@code $_pmc.g(index)}
+   * references that {@link RenderContext#parameter(int)} renders.
+   *
+   * @param script
+   *          the velocity script of a statement
+   *
+   * @return the template text
+   */
+  public static String toTemplate(String script) {
+    int[] index = new int[1];
+    return new GenericTokenParser("@{", "}",
+        content -> "$" + SQLScriptSource.MAPPING_COLLECTOR_KEY + ".g(" + index[0]++ + ")").parse(script);
+  }
+
+  private S block(Node node) throws UnsupportedTemplateException {
+    List<S> statements = new ArrayList<>();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      Node child = node.jjtGetChild(i);
+      if (child instanceof ASTText || child instanceof ASTTextblock || child instanceof ASTComment
+          || child instanceof ASTEscapedDirective) {
+        text.append(renderConstant(child));
+        continue;
+      }
+      flush(text, statements);
+      statements.add(statement(child));
+    }
+    flush(text, statements);
+    return this.backend.block(statements);
+  }
+
+  private void flush(StringBuilder text, List<S> statements) {
+    if (text.length() > 0) {
+      statements.add(this.backend.text(text.toString()));
+      text.setLength(0);
+    }
+  }
+
+  private S statement(Node node) throws UnsupportedTemplateException {
+    if (node instanceof ASTReference) {
+      Matcher parameter = InDirective.PARAMETER_REFERENCE.matcher(node.literal());
+      if (parameter.matches()) {
+        return this.backend.parameter(Integer.parseInt(parameter.group(1)));
+      }
+      return this.backend.render(reference((ASTReference) node), renderConstant(node));
+    } else if (node instanceof ASTIfStatement) {
+      List<C> conditions = new ArrayList<>();
+      List<S> blocks = new ArrayList<>();
+      conditions.add(condition(node.jjtGetChild(0)));
+      blocks.add(block(node.jjtGetChild(1)));
+      S otherwise = null;
+      for (int i = 2; i < node.jjtGetNumChildren(); i++) {
+        Node child = node.jjtGetChild(i);
+        if (child instanceof ASTElseIfStatement) {
+          conditions.add(condition(child.jjtGetChild(0)));
+          blocks.add(block(child.jjtGetChild(1)));
+        } else if (child instanceof ASTElseStatement) {
+          otherwise = block(child.jjtGetChild(0));
+        } else {
+          throw unsupported(child, "unexpected #if node");
+        }
+      }
+      return this.backend.ifElse(conditions, blocks, otherwise);
+    } else if (node instanceof ASTSetDirective) {
+      return this.backend.set(node);
+    } else if (node instanceof ASTDirective) {
+      return directive((ASTDirective) node);
+    }
+    throw unsupported(node, "'" + node.literal() + "' is not supported");
+  }
+
+  private S directive(ASTDirective node) throws UnsupportedTemplateException {
+    String name = node.getDirectiveName();
+    int last = node.jjtGetNumChildren() - 1;
+    if (last < 0 || !(node.jjtGetChild(last) instanceof ASTBlock)) {
+      throw unsupported(node, "#" + name + " is not supported");
+    }
+    Node blockNode = node.jjtGetChild(last);
+    switch (name) {
+      case "where":
+      case "mset":
+        if (last != 0) {
+          throw unsupported(node, "#" + name + " takes no argument");
+        }
+        if ("where".equals(name)) {
+          return this.backend.where(site(name, node), block(blockNode));
+        }
+        return this.backend.mset(site(name, node), block(blockNode));
+      case "trim": {
+        if (last > 4) {
+          throw unsupported(node, "#trim takes at most 4 arguments");
+        }
+        String[] params = { "", "", "", "" };
+        for (int i = 0; i < last; i++) {
+          params[i] = constant(node.jjtGetChild(i));
+        }
+        return this.backend.trim(site(name, node), params[0], params[1], params[2], params[3], block(blockNode));
+      }
+      case "repeat": {
+        if (last < 2 || last > 5) {
+          throw unsupported(node, "#repeat takes 2 to 5 arguments");
+        }
+        String[] strings = { "", "", "" };
+        for (int i = 2; i < last; i++) {
+          strings[i - 2] = constant(node.jjtGetChild(i));
+        }
+        return this.backend.repeat(value(node.jjtGetChild(0)), site(variable(node.jjtGetChild(1)), node), strings[0],
+            strings[1], strings[2], block(blockNode));
+      }
+      case "in": {
+        if (last < 3 || last > 4) {
+          throw unsupported(node, "#in takes 3 or 4 arguments");
+        }
+        String binding = last == 4 ? constant(node.jjtGetChild(3)) : null;
+        if (binding != null && !"array".equals(binding) && !"expand".equals(binding)) {
+          throw unsupported(node, "unknown binding '" + binding + "'");
+        }
+        return this.backend.in(value(node.jjtGetChild(0)), site(variable(node.jjtGetChild(1)), node),
+            constant(node.jjtGetChild(2)), binding, InDirective.findSingleParameter(blockNode), block(blockNode));
+      }
+      case "foreach":
+        if (last != 3 || !(node.jjtGetChild(1) instanceof ASTWord)
+            || !"in".equals(node.jjtGetChild(1).getFirstToken().image)) {
+          throw unsupported(node, "#foreach must be #foreach($item in $collection)");
+        }
+        return this.backend.foreach(value(node.jjtGetChild(2)), site(variable(node.jjtGetChild(0)), node),
+            block(blockNode));
+      default:
+        throw unsupported(node, "#" + name + " is not supported");
+    }
+  }
+
+  private C condition(Node node) throws UnsupportedTemplateException {
+    if (node instanceof ASTExpression) {
+      return condition(node.jjtGetChild(0));
+    } else if (node instanceof ASTAndNode) {
+      return this.backend.and(condition(node.jjtGetChild(0)), condition(node.jjtGetChild(1)));
+    } else if (node instanceof ASTOrNode) {
+      return this.backend.or(condition(node.jjtGetChild(0)), condition(node.jjtGetChild(1)));
+    } else if (node instanceof ASTNotNode) {
+      return this.backend.not(condition(node.jjtGetChild(0)));
+    } else if (node instanceof ASTTrue) {
+      return this.backend.condition(true);
+    } else if (node instanceof ASTFalse) {
+      return this.backend.condition(false);
+    } else if (isComparison(node)) {
+      return this.backend.compare(site(operator(node), node), value(node.jjtGetChild(0)), value(node.jjtGetChild(1)));
+    } else if (node instanceof ASTReference) {
+      return this.backend.isTrue(reference((ASTReference) node));
+    }
+    // Velocity does not evaluate a literal or an arithmetic expression as a condition the way it converts a value
+    throw unsupported(node, "the condition '" + node.literal() + "' is not supported");
+  }
+
+  private static boolean isComparison(Node node) {
+    return node instanceof ASTEQNode || node instanceof ASTNENode || node instanceof ASTLTNode
+        || node instanceof ASTLENode || node instanceof ASTGTNode || node instanceof ASTGENode;
+  }
+
+  private static String operator(Node node) {
+    if (node instanceof ASTEQNode) {
+      return "==";
+    } else if (node instanceof ASTNENode) {
+      return "!=";
+    } else if (node instanceof ASTLTNode) {
+      return "<";
+    } else if (node instanceof ASTLENode) {
+      return "<=";
+    } else if (node instanceof ASTGTNode) {
+      return ">";
+    }
+    return ">=";
+  }
+
+  private V value(Node node) throws UnsupportedTemplateException {
+    if (node instanceof ASTExpression) {
+      return value(node.jjtGetChild(0));
+    } else if (node instanceof ASTReference) {
+      return reference((ASTReference) node);
+    } else if (node instanceof ASTStringLiteral) {
+      return this.backend.constant(constant(node));
+    } else if (node instanceof ASTIntegerLiteral || node instanceof ASTFloatingPointLiteral) {
+      Object constant = node.value(this.emptyContext);
+      if (constant == null) {
+        throw unsupported(node, "the number " + node.literal() + " is not supported");
+      }
+      return this.backend.constant(constant);
+    } else if (node instanceof ASTTrue) {
+      return this.backend.constant(Boolean.TRUE);
+    } else if (node instanceof ASTFalse) {
+      return this.backend.constant(Boolean.FALSE);
+    } else if (node instanceof ASTAndNode || node instanceof ASTOrNode || node instanceof ASTNotNode
+        || isComparison(node)) {
+      return this.backend.value(condition(node));
+    }
+    throw unsupported(node, "'" + node.literal() + "' is not supported");
+  }
+
+  private V reference(ASTReference node) throws UnsupportedTemplateException {
+    if (!node.literal().startsWith("$")) {
+      throw unsupported(node, "escaped references are not supported");
+    }
+    V value = this.backend.variable(node.getRootString());
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      Node child = node.jjtGetChild(i);
+      if (child instanceof ASTIdentifier) {
+        value = this.backend.property(value, site(child.getFirstToken().image, child));
+      } else if (child instanceof ASTMethod) {
+        RenderContext.Site site = site(child.getFirstToken().image, child);
+        // The first child is the method name
+        List<V> args = new ArrayList<>();
+        for (int j = 1; j < child.jjtGetNumChildren(); j++) {
+          args.add(value(child.jjtGetChild(j)));
+        }
+        value = this.backend.invoke(value, site, args);
+      } else {
+        throw unsupported(child, "'" + node.literal() + "' is not supported");
+      }
+    }
+    return value;
+  }
+
+  private static String variable(Node node) throws UnsupportedTemplateException {
+    if (!(node instanceof ASTReference) || node.jjtGetNumChildren() > 0) {
+      throw unsupported(node, "'" + node.literal() + "' is not a variable");
+    }
+    return ((ASTReference) node).getRootString();
+  }
+
+  private String constant(Node node) throws UnsupportedTemplateException {
+    String literal = node.literal();
+    if (!(node instanceof ASTStringLiteral) || literal.indexOf('$') >= 0 || literal.indexOf('#') >= 0) {
+      throw unsupported(node, "only constant strings are supported, not " + literal);
+    }
+    return String.valueOf(node.value(this.emptyContext));
+  }
+
+  /**
+   * Render a node that does not depend on the context, or the output of a reference with a {@code null} value.
+   */
+  private String renderConstant(Node node) throws UnsupportedTemplateException {
+    try {
+      Writer writer = new StringWriter();
+      node.render(this.emptyContext, writer);
+      return writer.toString();
+    } catch (IOException | RuntimeException e) {
+      throw unsupported(node, "cannot render '" + node.literal() + "': " + e);
+    }
+  }
+
+  private RenderContext.Site site(String name, Node node) {
+    return new RenderContext.Site(name, this.templateName, node.getLine(), node.getColumn());
+  }
+
+  /**
+   * Return the exception thrown when a node cannot be translated.
+   *
+   * @param node
+   *          the node
+   * @param reason
+   *          the reason
+   *
+   * @return the exception, whose message tells the location of the node
+   */
+  public static UnsupportedTemplateException unsupported(Node node, String reason) {
+    return new UnsupportedTemplateException(reason + " at line " + node.getLine() + ", column " + node.getColumn());
+  }
+
+  /**
+   * Builds a renderer from the {@link RenderContext} operations of a template. The translator calls the methods
+   * bottom-up: the operands, then the operation that uses them.
+   *
+   * @param <S>
+   *          the type of the translated statements
+   * @param <C>
+   *          the type of the translated conditions
+   * @param <V>
+   *          the type of the translated values
+   */
+  public interface Backend<S, C, V> {
+
+    /**
+     * Write a text, see {@link RenderContext#write(String)}.
+     *
+     * @param text
+     *          the text, which is never empty
+     *
+     * @return the statement
+     */
+    S text(String text);
+
+    /**
+     * Write a parameter placeholder, see {@link RenderContext#parameter(int)}.
+     *
+     * @param index
+     *          the index of the parameter
+     *
+     * @return the statement
+     */
+    S parameter(int index);
+
+    /**
+     * Write a reference, see {@link RenderContext#render(Object, String)}.
+     *
+     * @param value
+     *          the value of the reference
+     * @param literal
+     *          the output when the value is {@code null}
+     *
+     * @return the statement
+     */
+    S render(V value, String literal);
+
+    /**
+     * Render a {@code #set} directive.
+     *
+     * @param node
+     *          the directive node
+     *
+     * @return the statement
+     *
+     * @throws UnsupportedTemplateException
+     *           if the backend cannot render it
+     */
+    S set(Node node) throws UnsupportedTemplateException;
+
+    /**
+     * Render statements in sequence.
+     *
+     * @param statements
+     *          the statements, can be empty
+     *
+     * @return the statement
+     */
+    S block(List<S> statements);
+
+    /**
+     * Render the block of the first true condition, like {@code #if}/{@code #elseif}/{@code #else}.
+     *
+     * @param conditions
+     *          the conditions
+     * @param blocks
+     *          the block of each condition
+     * @param otherwise
+     *          the block rendered when no condition is true, or {@code null}
+     *
+     * @return the statement
+     */
+    S ifElse(List<C> conditions, List<S> blocks, S otherwise);
+
+    /**
+     * See {@link RenderContext#where(RenderContext.Site, RenderContext.Block)}.
+     *
+     * @param site
+     *          the directive site
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S where(RenderContext.Site site, S block);
+
+    /**
+     * See {@link RenderContext#mset(RenderContext.Site, RenderContext.Block)}.
+     *
+     * @param site
+     *          the directive site
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S mset(RenderContext.Site site, S block);
+
+    /**
+     * See {@link RenderContext#trim(RenderContext.Site, String, String, String, String, RenderContext.Block)}.
+     *
+     * @param site
+     *          the directive site
+     * @param prefix
+     *          the prefix
+     * @param prefixOverrides
+     *          the prefix overrides
+     * @param suffix
+     *          the suffix
+     * @param suffixOverrides
+     *          the suffix overrides
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S trim(RenderContext.Site site, String prefix, String prefixOverrides, String suffix, String suffixOverrides,
+        S block);
+
+    /**
+     * See {@link RenderContext#repeat(Object, RenderContext.Site, String, String, String, RenderContext.Block)}.
+     *
+     * @param collection
+     *          the collection
+     * @param site
+     *          the directive site
+     * @param separator
+     *          the separator
+     * @param open
+     *          the opening text
+     * @param close
+     *          the closing text
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S repeat(V collection, RenderContext.Site site, String separator, String open, String close, S block);
+
+    /**
+     * See {@link RenderContext#in(Object, RenderContext.Site, String, String, int, RenderContext.Block)}.
+     *
+     * @param collection
+     *          the collection
+     * @param site
+     *          the directive site
+     * @param column
+     *          the column
+     * @param binding
+     *          the binding, or {@code null}
+     * @param arrayMapping
+     *          the index of the parameter when the block is a single parameter, or {@code -1}
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S in(V collection, RenderContext.Site site, String column, String binding, int arrayMapping, S block);
+
+    /**
+     * See {@link RenderContext#foreach(Object, RenderContext.Site, RenderContext.Block)}.
+     *
+     * @param collection
+     *          the collection
+     * @param site
+     *          the directive site
+     * @param block
+     *          the block
+     *
+     * @return the statement
+     */
+    S foreach(V collection, RenderContext.Site site, S block);
+
+    /**
+     * See {@link RenderContext#isTrue(Object)}.
+     *
+     * @param value
+     *          the value
+     *
+     * @return the condition
+     */
+    C isTrue(V value);
+
+    /**
+     * See {@link RenderContext#compare(RenderContext.Site, Object, Object)}.
+     *
+     * @param site
+     *          the comparison site
+     * @param left
+     *          the left value
+     * @param right
+     *          the right value
+     *
+     * @return the condition
+     */
+    C compare(RenderContext.Site site, V left, V right);
+
+    /**
+     * Return whether two conditions are true, the right one being evaluated only if the left one is.
+     *
+     * @param left
+     *          the left condition
+     * @param right
+     *          the right condition
+     *
+     * @return the condition
+     */
+    C and(C left, C right);
+
+    /**
+     * Return whether one of two conditions is true, the right one being evaluated only if the left one is not.
+     *
+     * @param left
+     *          the left condition
+     * @param right
+     *          the right condition
+     *
+     * @return the condition
+     */
+    C or(C left, C right);
+
+    /**
+     * Return whether a condition is false.
+     *
+     * @param operand
+     *          the condition
+     *
+     * @return the condition
+     */
+    C not(C operand);
+
+    /**
+     * Return a constant condition.
+     *
+     * @param value
+     *          the constant
+     *
+     * @return the condition
+     */
+    C condition(boolean value);
+
+    /**
+     * See {@link RenderContext#get(String)}.
+     *
+     * @param name
+     *          the variable name
+     *
+     * @return the value
+     */
+    V variable(String name);
+
+    /**
+     * See {@link RenderContext#property(Object, RenderContext.Site)}.
+     *
+     * @param target
+     *          the object
+     * @param site
+     *          the property site
+     *
+     * @return the value
+     */
+    V property(V target, RenderContext.Site site);
+
+    /**
+     * See {@link RenderContext#invoke(Object, RenderContext.Site, Object...)}.
+     *
+     * @param target
+     *          the object
+     * @param site
+     *          the method site
+     * @param args
+     *          the arguments
+     *
+     * @return the value
+     */
+    V invoke(V target, RenderContext.Site site, List<V> args);
+
+    /**
+     * Return a constant.
+     *
+     * @param value
+     *          a {@link String}, a {@link Boolean}, or a number as parsed by Velocity
+     *
+     * @return the value
+     *
+     * @throws UnsupportedTemplateException
+     *           if the backend cannot represent the constant
+     */
+    V constant(Object value) throws UnsupportedTemplateException;
+
+    /**
+     * Return the {@link Boolean} value of a condition.
+     *
+     * @param condition
+     *          the condition
+     *
+     * @return the value
+     */
+    V value(C condition);
+
+  }
+
+}
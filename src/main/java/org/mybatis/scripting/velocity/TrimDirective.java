@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,17 +16,28 @@
 package org.mybatis.scripting.velocity;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.RuntimeServices;
 import org.apache.velocity.runtime.directive.Directive;
+import org.apache.velocity.runtime.directive.StopCommand;
 import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
 import org.apache.velocity.runtime.parser.node.Node;
 
 public class TrimDirective extends Directive {
 
+  final OutputSizeHint bodySize = new OutputSizeHint(16);
+
+  /**
+   * The parameters resolved once when all the arguments are literals, shared by all renders.
+   */
+  private Params literalParams;
+
   @Override
   public String getName() {
     return "trim";
@@ -37,8 +48,37 @@ public class TrimDirective extends Directive {
     return BLOCK;
   }
 
+  @Override
+  public void init(RuntimeServices rs, InternalContextAdapter context, Node node) {
+    super.init(rs, context, node);
+    if (isLiteralParamsEnabled()) {
+      this.literalParams = getLiteralParams(context, node);
+    }
+  }
+
+  /**
+   * Return whether the parameters of literal arguments are resolved once by
+   * {@link #getLiteralParams(InternalContextAdapter, Node)}, the block being then rendered without calling
+   * {@link #getParams(InternalContextAdapter, Node)}.
+   * <p>
+   * Only the directives of this library enable it, so a subclass that overrides {@code getParams} keeps being called on
+   * every render. A subclass whose {@code getLiteralParams} resolves the same parameters as its {@code getParams} can
+   * return {@code true}.
+   * </p>
+   *
+   * @return {@code true} to resolve the parameters of literal arguments once
+   *
+   * @since 2.3.2
+   */
+  protected boolean isLiteralParamsEnabled() {
+    return getClass() == TrimDirective.class;
+  }
+
   @Override
   public final boolean render(InternalContextAdapter ica, Writer writer, Node node) throws IOException {
+    if (this.literalParams != null) {
+      return render(this.literalParams, ica, node.jjtGetChild(node.jjtGetNumChildren() - 1), writer);
+    }
     Params p = getParams(ica, node);
     if (p == null) {
       return false;
@@ -47,76 +87,186 @@ public class TrimDirective extends Directive {
   }
 
   public boolean render(final Params params, final Writer writer) throws IOException {
-    int leftIndex = 0;
-    int rightIndex = params.maxBody;
-    if (rightIndex == 0) {
+    if (params.maxBody == 0) {
       return false;
     }
-    if (!params.prefixOverrides.isEmpty()) {
-      final String LEFT = params.body
-          .substring(0, params.maxPrefixLength < params.maxBody ? params.maxPrefixLength : params.maxBody)
-          .toUpperCase(Locale.ENGLISH);
-      FastLinkedList<String>.Node n = params.prefixOverrides.start();
-      while (n != null) {
-        if (LEFT.startsWith(n.data)) {
-          leftIndex = n.data.length();
-          break;
-        }
-        n = n.next;
+    final SQLWriter out = writer instanceof SQLWriter ? (SQLWriter) writer
+        : new SQLWriter(params.prefix.length() + params.maxBody + params.suffix.length() + 2);
+    final int mark = out.length();
+    out.write(params.body);
+    return complete(params, out, mark, writer);
+  }
+
+  /**
+   * Render the block straight to the target writer when it is a {@link SQLWriter}, so nested directives write to the
+   * same buffer, and trim it in place. When the block is stopped (e.g. by {@code #break($foreach)}), what it has
+   * written is discarded, as if it had been rendered apart.
+   */
+  private boolean render(final Params params, final InternalContextAdapter context, final Node block,
+      final Writer writer) throws IOException {
+    return render(params, context, block::render, writer, this.bodySize);
+  }
+
+  static boolean render(final Params params, final InternalContextAdapter context, final BlockRenderer block,
+      final Writer writer, final OutputSizeHint bodySize) throws IOException {
+    final SQLWriter out = writer instanceof SQLWriter ? (SQLWriter) writer : bodySize.newWriter();
+    final int mark = out.length();
+    try {
+      block.render(context, out);
+    } catch (StopCommand stop) {
+      out.setLength(mark);
+      throw stop;
+    }
+    bodySize.record(out.length() - mark);
+    return complete(params, out, mark, writer);
+  }
+
+  /**
+   * Return the parameters of literal arguments.
+   */
+  static Params paramsOf(final String... args) {
+    final Params.Builder params = new Params.Builder();
+    for (int i = 0; i < args.length; i++) {
+      setParam(params, i, args[i]);
+    }
+    return params.build();
+  }
+
+  private static boolean complete(final Params params, final SQLWriter out, final int mark, final Writer writer)
+      throws IOException {
+    final boolean rendered = trim(params, out, mark);
+    if (out != writer) {
+      out.writeTo(writer);
+    }
+    return rendered;
+  }
+
+  /**
+   * Replace what has been written from a mark with {@code prefix + ' ' + body + ' ' + suffix}, the body being the
+   * trimmed content without its prefix and suffix overrides, or with nothing when that body is blank.
+   *
+   * @return {@code false} when nothing but whitespace has been written from the mark
+   */
+  private static boolean trim(final Params params, final SQLWriter out, final int mark) {
+    int start = mark;
+    int end = out.length();
+    while (start < end && out.charAt(start) <= ' ') {
+      start++;
+    }
+    while (start < end && out.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    if (start == end) {
+      out.setLength(mark);
+      return false;
+    }
+    int leftIndex = start;
+    int rightIndex = end;
+    for (String override : params.prefixOverrides) {
+      if (regionMatches(out, start, end, override)) {
+        leftIndex = start + override.length();
+        break;
       }
     }
-    if (!params.suffixOverrides.isEmpty()) {
-      final String RIGHT = params.body
-          .substring(rightIndex > params.maxSuffixLength ? rightIndex - params.maxSuffixLength : 0)
-          .toUpperCase(Locale.ENGLISH);
-      FastLinkedList<String>.Node n = params.suffixOverrides.start();
-      while (n != null) {
-        if (RIGHT.endsWith(n.data)) {
-          rightIndex = rightIndex - n.data.length();
-          break;
-        }
-        n = n.next;
+    for (String override : params.suffixOverrides) {
+      if (end - override.length() >= start && regionMatches(out, end - override.length(), end, override)) {
+        rightIndex = end - override.length();
+        break;
       }
     }
-    if (rightIndex > leftIndex) {
-      String content = params.body.substring(leftIndex, rightIndex).trim();
-      if (!"".equals(content)) {
-        writer.append(params.prefix).append(' ');
-        writer.append(params.body, leftIndex, rightIndex).append(' ');
-        writer.append(params.suffix);
+    if (rightIndex <= leftIndex || isBlank(out, leftIndex, rightIndex)) {
+      out.setLength(mark);
+      return true;
+    }
+    out.setLength(rightIndex);
+    out.replace(mark, leftIndex, params.prefix, ' ');
+    out.append(' ').append(params.suffix);
+    return true;
+  }
+
+  /**
+   * Same as {@link String#regionMatches(boolean, int, String, int, int)} ignoring case, for an upper-cased string that
+   * must end before an index.
+   */
+  private static boolean regionMatches(final CharSequence s, final int offset, final int end, final String upper) {
+    if (offset + upper.length() > end) {
+      return false;
+    }
+    for (int i = 0; i < upper.length(); i++) {
+      char c = s.charAt(offset + i);
+      char u = upper.charAt(i);
+      if (c != u && Character.toUpperCase(c) != u) {
+        return false;
       }
     }
     return true;
   }
 
+  private static boolean isBlank(final CharSequence s, final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      if (s.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The arguments of a trim directive, and the block content when it is rendered first. The directive never changes a
+   * {@code Params}, so the one resolved from literal arguments is shared by all renders; {@link Builder} and
+   * {@link #withBody(String)} build one per render. The setters are kept for the subclasses that fill their own
+   * parameters.
+   */
   protected static final class Params {
 
+    private static final String[] NO_OVERRIDES = {};
+
     String prefix = "";
 
     String suffix = "";
 
-    FastLinkedList<String> prefixOverrides = new FastLinkedList<>();
+    String[] prefixOverrides = NO_OVERRIDES;
 
-    FastLinkedList<String> suffixOverrides = new FastLinkedList<>();
+    String[] suffixOverrides = NO_OVERRIDES;
 
     String body = "";
 
-    int maxPrefixLength = 0;
+    int maxBody = 0;
 
-    int maxSuffixLength = 0;
+    /**
+     * Create empty parameters.
+     *
+     * @deprecated since 2.3.2, use {@link Builder}
+     */
+    @Deprecated
+    public Params() {
+      // Filled by the setters
+    }
 
-    int maxBody = 0;
+    private Params(String prefix, String[] prefixOverrides, String suffix, String[] suffixOverrides, String body) {
+      this.prefix = prefix;
+      this.prefixOverrides = prefixOverrides;
+      this.suffix = suffix;
+      this.suffixOverrides = suffixOverrides;
+      this.body = body;
+      this.maxBody = body.length();
+    }
 
     public String getBody() {
       return this.body;
     }
 
+    /**
+     * Set the block content.
+     *
+     * @param value
+     *          the block content
+     *
+     * @deprecated since 2.3.2, use {@link #withBody(String)} or {@link Builder#body(String)}
+     */
+    @Deprecated
     public void setBody(String value) {
-      if (value == null) {
-        this.body = "";
-      } else {
-        this.body = value.trim();
-      }
+      this.body = value == null ? "" : value.trim();
       this.maxBody = this.body.length();
     }
 
@@ -124,92 +274,264 @@ public class TrimDirective extends Directive {
       return this.prefix;
     }
 
+    /**
+     * Set the prefix.
+     *
+     * @param value
+     *          the prefix
+     *
+     * @deprecated since 2.3.2, use {@link Builder#prefix(String)}
+     */
+    @Deprecated
     public void setPrefix(String value) {
       this.prefix = value;
     }
 
+    /**
+     * Return the prefix overrides.
+     *
+     * @return a copy of the prefix overrides
+     *
+     * @deprecated since 2.3.2, kept for compatibility as {@link FastLinkedList} is deprecated
+     */
+    @Deprecated
     public FastLinkedList<String> getPrefixOverrides() {
-      return this.prefixOverrides;
+      FastLinkedList<String> list = new FastLinkedList<>();
+      for (String override : this.prefixOverrides) {
+        list.add(override);
+      }
+      return list;
     }
 
+    /**
+     * Set the prefix overrides, separated by {@code |}, matched ignoring case when they are upper-cased.
+     *
+     * @param list
+     *          the prefix overrides
+     *
+     * @deprecated since 2.3.2, use {@link Builder#prefixOverrides(String)}
+     */
+    @Deprecated
     public void setPrefixOverrides(String list) {
-      this.maxPrefixLength = fromStringList(list, '|', this.prefixOverrides);
+      this.prefixOverrides = fromStringList(list, '|');
     }
 
+    /**
+     * Return the suffix overrides.
+     *
+     * @return a copy of the suffix overrides
+     *
+     * @deprecated since 2.3.2, kept for compatibility as {@link FastLinkedList} is deprecated
+     */
+    @Deprecated
     public FastLinkedList<String> getSuffixOverrides() {
-      return this.suffixOverrides;
+      FastLinkedList<String> list = new FastLinkedList<>();
+      for (String override : this.suffixOverrides) {
+        list.add(override);
+      }
+      return list;
     }
 
+    /**
+     * Set the suffix overrides, separated by {@code |}, matched ignoring case when they are upper-cased.
+     *
+     * @param list
+     *          the suffix overrides
+     *
+     * @deprecated since 2.3.2, use {@link Builder#suffixOverrides(String)}
+     */
+    @Deprecated
     public void setSuffixOverrides(String list) {
-      this.maxSuffixLength = fromStringList(list, '|', this.suffixOverrides);
+      this.suffixOverrides = fromStringList(list, '|');
     }
 
     public String getSuffix() {
       return this.suffix;
     }
 
+    /**
+     * Set the suffix.
+     *
+     * @param value
+     *          the suffix
+     *
+     * @deprecated since 2.3.2, use {@link Builder#suffix(String)}
+     */
+    @Deprecated
     public void setSuffix(String value) {
       this.suffix = value;
     }
 
+    /**
+     * Return parameters with the same arguments and another block content.
+     *
+     * @param value
+     *          the block content
+     *
+     * @return the parameters
+     *
+     * @since 2.3.2
+     */
+    public Params withBody(String value) {
+      return new Params(this.prefix, this.prefixOverrides, this.suffix, this.suffixOverrides,
+          value == null ? "" : value.trim());
+    }
+
+    /**
+     * Builder for {@link Params}.
+     *
+     * @since 2.3.2
+     */
+    public static final class Builder {
+
+      private String prefix = "";
+
+      private String suffix = "";
+
+      private String[] prefixOverrides = NO_OVERRIDES;
+
+      private String[] suffixOverrides = NO_OVERRIDES;
+
+      private String body = "";
+
+      public Builder prefix(String value) {
+        this.prefix = value;
+        return this;
+      }
+
+      /**
+       * Set the prefix overrides, separated by {@code |}, matched ignoring case.
+       */
+      public Builder prefixOverrides(String list) {
+        this.prefixOverrides = fromStringList(list == null ? null : list.toUpperCase(Locale.ENGLISH), '|');
+        return this;
+      }
+
+      public Builder suffix(String value) {
+        this.suffix = value;
+        return this;
+      }
+
+      /**
+       * Set the suffix overrides, separated by {@code |}, matched ignoring case.
+       */
+      public Builder suffixOverrides(String list) {
+        this.suffixOverrides = fromStringList(list == null ? null : list.toUpperCase(Locale.ENGLISH), '|');
+        return this;
+      }
+
+      public Builder body(String value) {
+        this.body = value == null ? "" : value.trim();
+        return this;
+      }
+
+      public Params build() {
+        return new Params(this.prefix, this.prefixOverrides, this.suffix, this.suffixOverrides, this.body);
+      }
+
+    }
+
   }
 
   protected Params getParams(final InternalContextAdapter context, final Node node) throws IOException {
-    final Params params = new Params();
+    final Params.Builder params = new Params.Builder();
     final int nodes = node.jjtGetNumChildren();
     for (int i = 0; i < nodes; i++) {
       Node child = node.jjtGetChild(i);
       if (child != null) {
         if (!(child instanceof ASTBlock)) {
-          if (i == 0) {
-            params.setPrefix(String.valueOf(child.value(context)));
-          } else if (i == 1) {
-            params.setPrefixOverrides(String.valueOf(child.value(context)).toUpperCase(Locale.ENGLISH));
-          } else if (i == 2) {
-            params.setSuffix(String.valueOf(child.value(context)));
-          } else if (i == 3) {
-            params.setSuffixOverrides(String.valueOf(child.value(context)).toUpperCase(Locale.ENGLISH));
-          } else {
+          if (!setParam(params, i, String.valueOf(child.value(context)))) {
             break;
           }
         } else {
-          StringWriter blockContent = new StringWriter();
-          child.render(context, blockContent);
-          params.setBody(blockContent.toString().trim());
+          params.body(renderBody(context, child));
           break;
         }
       }
     }
-    return params;
-  }
-
-  static int fromStringList(final String list, final char sep, final FastLinkedList<String> fll) {
-    int max = 0;
-    if (list != null) {
-      final int n = list.length();
-      int i = 0;
-      while (i < n) {
-        int r = list.indexOf(sep, i);
-        if (i < r) {
-          fll.add(list.substring(i, r));
-          int len = r - i;
-          if (len > max) {
-            max = len;
-          }
-          i = r + 1;
-        } else {
-          break;
-        }
+    return params.build();
+  }
+
+  /**
+   * Return the parameters, without body, when they can be resolved once for all renders.
+   *
+   * @param context
+   *          the context the directive is initialized with
+   * @param node
+   *          the directive node
+   *
+   * @return the parameters, or {@code null} to call {@link #getParams(InternalContextAdapter, Node)} on every render
+   *
+   * @since 2.3.2
+   */
+  protected Params getLiteralParams(final InternalContextAdapter context, final Node node) {
+    final int nodes = node.jjtGetNumChildren();
+    if (nodes == 0 || nodes > 5 || !(node.jjtGetChild(nodes - 1) instanceof ASTBlock)) {
+      return null;
+    }
+    final Params.Builder params = new Params.Builder();
+    for (int i = 0; i < nodes - 1; i++) {
+      Node child = node.jjtGetChild(i);
+      if (!(child instanceof ASTStringLiteral) || child.literal().indexOf('$') >= 0
+          || child.literal().indexOf('#') >= 0) {
+        return null;
       }
-      if (i < n) {
-        fll.add(list.substring(i));
-        int len = n - i;
-        if (len > max) {
-          max = len;
-        }
+      setParam(params, i, String.valueOf(child.value(context)));
+    }
+    return params.build();
+  }
+
+  private static boolean setParam(final Params.Builder params, final int index, final String value) {
+    switch (index) {
+      case 0:
+        params.prefix(value);
+        return true;
+      case 1:
+        params.prefixOverrides(value);
+        return true;
+      case 2:
+        params.suffix(value);
+        return true;
+      case 3:
+        params.suffixOverrides(value);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Render the block of the directive.
+   *
+   * @return the trimmed content of the block
+   */
+  final String renderBody(final InternalContextAdapter context, final Node block) throws IOException {
+    SQLWriter blockContent = this.bodySize.newWriter();
+    block.render(context, blockContent);
+    this.bodySize.record(blockContent.length());
+    return blockContent.toTrimmedString();
+  }
+
+  static String[] fromStringList(final String list, final char sep) {
+    if (list == null) {
+      return Params.NO_OVERRIDES;
+    }
+    final List<String> items = new ArrayList<>();
+    final int n = list.length();
+    int i = 0;
+    while (i < n) {
+      int r = list.indexOf(sep, i);
+      if (i < r) {
+        items.add(list.substring(i, r));
+        i = r + 1;
+      } else {
+        break;
       }
     }
-    return max;
+    if (i < n) {
+      items.add(list.substring(i));
+    }
+    return items.toArray(Params.NO_OVERRIDES);
   }
 
 }
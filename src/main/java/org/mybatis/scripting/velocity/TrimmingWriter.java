@@ -0,0 +1,128 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams a block to another writer as {@code prefix + content.trim()}, writing nothing if the trimmed content is
+ * empty.
+ * <p>
+ * Leading whitespace is dropped and trailing whitespace is held back until some non whitespace character follows it, so
+ * only a run of whitespace is ever buffered.
+ * </p>
+ */
+final class TrimmingWriter extends Writer {
+
+  private final Writer out;
+  private final String prefix;
+  private final StringBuilder pending = new StringBuilder();
+  private boolean started;
+
+  TrimmingWriter(Writer out, String prefix) {
+    this.out = out;
+    this.prefix = prefix;
+  }
+
+  /**
+   * Return whether some non whitespace character has been written, so the prefix has been written too.
+   */
+  boolean isStarted() {
+    return this.started;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (c <= ' ') {
+      if (this.started) {
+        this.pending.append((char) c);
+      }
+    } else {
+      begin();
+      this.out.write(c);
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      int j = i;
+      if (cbuf[i] <= ' ') {
+        while (j < end && cbuf[j] <= ' ') {
+          j++;
+        }
+        if (this.started) {
+          this.pending.append(cbuf, i, j - i);
+        }
+      } else {
+        while (j < end && cbuf[j] > ' ') {
+          j++;
+        }
+        begin();
+        this.out.write(cbuf, i, j - i);
+      }
+      i = j;
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      int j = i;
+      if (str.charAt(i) <= ' ') {
+        while (j < end && str.charAt(j) <= ' ') {
+          j++;
+        }
+        if (this.started) {
+          this.pending.append(str, i, j);
+        }
+      } else {
+        while (j < end && str.charAt(j) > ' ') {
+          j++;
+        }
+        begin();
+        this.out.write(str, i, j - i);
+      }
+      i = j;
+    }
+  }
+
+  private void begin() throws IOException {
+    if (!this.started) {
+      this.started = true;
+      this.out.write(this.prefix);
+    } else if (this.pending.length() > 0) {
+      this.out.append(this.pending);
+      this.pending.setLength(0);
+    }
+  }
+
+  @Override
+  public void flush() {
+    // Trailing whitespace must not be written before the block ends
+  }
+
+  @Override
+  public void close() {
+    // The target writer is owned by the caller
+  }
+
+}
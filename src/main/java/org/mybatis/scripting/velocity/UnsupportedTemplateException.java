@@ -0,0 +1,38 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+/**
+ * Thrown when a template uses a construct that a {@link TemplateTranslator} cannot translate, so that it stays
+ * interpreted.
+ *
+ * @since 2.3.2
+ */
+public class UnsupportedTemplateException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructor.
+   *
+   * @param message
+   *          the reason, with the location of the construct
+   */
+  public UnsupportedTemplateException(String message) {
+    super(message);
+  }
+
+}
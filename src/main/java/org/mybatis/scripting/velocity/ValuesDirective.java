@@ -0,0 +1,266 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.TemplateInitException;
+import org.apache.velocity.exception.VelocityException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.directive.StopCommand;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.runtime.parser.node.StandardParserTreeConstants;
+import org.apache.velocity.util.introspection.Info;
+
+/**
+ * #values($collection $item).
+ * <p>
+ * Renders {@code VALUES (row), (row), ...} with one row per item for multi-row inserts. Unlike {@code #repeat}, all
+ * items are rendered, and the total number of bind parameters of the statement is checked against the budget of the
+ * current database id, set by the {@value #MAX_PARAMETERS_PROPERTY}{@code .<databaseId>} property of the template
+ * engine, or by the {@value #MAX_PARAMETERS_PROPERTY} property for any database id. The {@code sqlserver} (2100) and
+ * {@code postgresql} (32767) database ids have a budget by default.
+ * </p>
+ * <p>
+ * The budget is checked as soon as the first row is rendered, so a statement that cannot fit fails before the rest of
+ * the rows are rendered, with the number of rows per statement the collection should be split into. The parameters
+ * rendered before the directive are counted as rendered, and the {@code @{}} parameters that follow it in the
+ * template are counted once each, whether they are rendered or not (e.g. in an {@code #if}) and however many times
+ * they are (e.g. in a {@code #foreach}). A null or empty collection fails too, as a {@code VALUES} clause needs at
+ * least one row.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public class ValuesDirective extends RepeatDirective {
+
+  /**
+   * The property that sets the maximum number of bind parameters of a statement.
+   */
+  public static final String MAX_PARAMETERS_PROPERTY = "directive.values.max_parameters";
+
+  private static final Map<String, Integer> DEFAULT_MAX_PARAMETERS = new HashMap<>();
+
+  static {
+    DEFAULT_MAX_PARAMETERS.put("sqlserver", 2100);
+    DEFAULT_MAX_PARAMETERS.put("postgresql", 32767);
+  }
+
+  private static final String ROW_OPEN = "(";
+
+  private static final String ROW_CLOSE = ")";
+
+  private static final String ROW_SEPARATOR = ", ";
+
+  /**
+   * Immutable fields
+   */
+  private String itemVar;
+
+  private int trailingParameters;
+
+  @Override
+  public String getName() {
+    return "values";
+  }
+
+  @Override
+  public void init(RuntimeServices rs, InternalContextAdapter context, Node node) {
+    super.init(rs, context, node);
+    if (node.jjtGetNumChildren() != 3) {
+      throw new TemplateInitException("Syntax error", getTemplateName(), getLine(), getColumn());
+    }
+    Node child = node.jjtGetChild(1);
+    if (child.getType() != StandardParserTreeConstants.JJTREFERENCE) {
+      throw new TemplateInitException("Syntax error", getTemplateName(), getLine(), getColumn());
+    }
+    this.itemVar = ((ASTReference) child).getRootString();
+    this.uberInfo = new Info(this.getTemplateName(), getLine(), getColumn());
+    this.trailingParameters = countTrailingParameters(node);
+  }
+
+  /**
+   * Count the {@code @{}} parameters that follow a directive in its template.
+   */
+  private static int countTrailingParameters(Node node) {
+    int count = 0;
+    for (Node child = node, parent = node.jjtGetParent(); parent != null; child = parent, parent = parent
+        .jjtGetParent()) {
+      boolean following = false;
+      for (int i = 0; i < parent.jjtGetNumChildren(); i++) {
+        Node sibling = parent.jjtGetChild(i);
+        if (following) {
+          count += countParameters(sibling);
+        } else {
+          following = sibling == child;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int countParameters(Node node) {
+    if (node instanceof ASTReference
+        && SQLScriptSource.MAPPING_COLLECTOR_KEY.equals(((ASTReference) node).getRootString())) {
+      return 1;
+    }
+    int count = 0;
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      count += countParameters(node.jjtGetChild(i));
+    }
+    return count;
+  }
+
+  /**
+   * Return the maximum number of bind parameters of a statement for a database id.
+   *
+   * @param databaseId
+   *          the current database id, can be {@code null}
+   *
+   * @return the maximum number of bind parameters, or {@code 0} when unlimited
+   */
+  int getMaxParameters(String databaseId) {
+    int maxParameters = this.rsvc.getInt(MAX_PARAMETERS_PROPERTY, 0);
+    if (databaseId != null) {
+      maxParameters = this.rsvc.getInt(MAX_PARAMETERS_PROPERTY + "." + databaseId,
+          DEFAULT_MAX_PARAMETERS.getOrDefault(databaseId, maxParameters));
+    }
+    return maxParameters;
+  }
+
+  @Override
+  public boolean render(InternalContextAdapter context, Writer writer, Node node) throws IOException {
+    Object listObject = node.jjtGetChild(0).value(context);
+    if (listObject == null) {
+      throw new VelocityException("#values needs at least one row, but the collection is null at " + this.uberInfo);
+    }
+
+    Iterator<?> iterator = null;
+
+    try {
+      iterator = this.rsvc.getUberspect().getIterator(listObject, this.uberInfo);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception ee) {
+      String msg = "Error getting iterator for #values at " + this.uberInfo;
+      this.rsvc.getLog().error(msg, ee);
+      throw new VelocityException(msg, ee);
+    }
+
+    if (iterator == null) {
+      throw new VelocityException("Invalid collection");
+    }
+
+    List<Object> items = new ArrayList<>();
+    iterator.forEachRemaining(items::add);
+    if (items.isEmpty()) {
+      throw new VelocityException("#values needs at least one row, but the collection is empty at " + this.uberInfo);
+    }
+
+    ParameterMappingCollector collector = (ParameterMappingCollector) context
+        .get(SQLScriptSource.MAPPING_COLLECTOR_KEY);
+    String databaseId = (String) context.get(SQLScriptSource.DATABASE_ID_KEY);
+    int maxParameters = getMaxParameters(databaseId);
+    int parametersBefore = collector.getParameterMappings().size();
+
+    Object o = context.get(this.itemVar);
+    String savedItemKey = collector.getItemKey();
+    RepeatScope savedItemScope = collector.getItemScope();
+    RepeatScope foreach = new RepeatScope(this, context.get(getName()), this.itemVar, this.uberInfo);
+    collector.setItemScope(foreach);
+    context.put(getName(), foreach);
+
+    NullHolderContext nullHolderContext = null;
+    Node block = node.jjtGetChild(node.jjtGetNumChildren() - 1);
+    writer.append("VALUES ");
+    for (int row = 0; row < items.size(); row++) {
+      Object value = items.get(row);
+      put(context, this.itemVar, value);
+      foreach.index++;
+      foreach.hasNext = row + 1 < items.size();
+
+      writer.append(ROW_OPEN);
+      try {
+        if (value == null) {
+          if (nullHolderContext == null) {
+            nullHolderContext = new NullHolderContext(this.itemVar, context);
+          }
+          block.render(nullHolderContext, writer);
+        } else {
+          block.render(context, writer);
+        }
+      } catch (StopCommand stop) {
+        if (stop.isFor(this)) {
+          writer.append(ROW_CLOSE);
+          break;
+        }
+        clean(context, o, collector, savedItemKey, savedItemScope);
+        throw stop;
+      }
+      writer.append(ROW_CLOSE);
+
+      if (maxParameters > 0) {
+        int parameters = collector.getParameterMappings().size();
+        // The first row tells how many parameters all the rows need
+        int expected = (row == 0 ? parametersBefore + (parameters - parametersBefore) * items.size() : parameters)
+            + this.trailingParameters;
+        if (expected > maxParameters) {
+          clean(context, o, collector, savedItemKey, savedItemScope);
+          throw budgetExceeded(databaseId, maxParameters, items.size(), parametersBefore, parameters, row + 1);
+        }
+      }
+
+      if (foreach.hasNext) {
+        writer.append(ROW_SEPARATOR);
+      }
+    }
+    clean(context, o, collector, savedItemKey, savedItemScope);
+    return true;
+  }
+
+  private VelocityException budgetExceeded(String databaseId, int maxParameters, int rows, int parametersBefore,
+      int parameters, int renderedRows) {
+    int parametersPerRow = Math.max(1, (parameters - parametersBefore + renderedRows - 1) / renderedRows);
+    int maxRows = (maxParameters - parametersBefore - this.trailingParameters) / parametersPerRow;
+    StringBuilder msg = new StringBuilder();
+    msg.append("#values needs about ").append(parametersBefore + parametersPerRow * rows + this.trailingParameters)
+        .append(" bind parameters for ").append(rows).append(" rows at ").append(this.uberInfo)
+        .append(", but at most ").append(maxParameters).append(" are allowed");
+    if (databaseId != null) {
+      msg.append(" for database id '").append(databaseId).append('\'');
+    }
+    if (maxRows > 0) {
+      msg.append("; split the collection into batches of at most ").append(maxRows).append(" rows");
+    } else {
+      msg.append("; a single row does not fit");
+    }
+    return new VelocityException(msg.toString());
+  }
+
+  @Override
+  public int getType() {
+    return BLOCK;
+  }
+
+}
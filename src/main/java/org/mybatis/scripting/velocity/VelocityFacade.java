@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,14 +16,19 @@
 package org.mybatis.scripting.velocity;
 
 import java.io.StringReader;
-import java.io.StringWriter;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -31,52 +36,255 @@ import org.apache.velocity.runtime.RuntimeConstants;
 import org.apache.velocity.runtime.RuntimeInstance;
 import org.apache.velocity.runtime.parser.node.SimpleNode;
 
+/**
+ * The facade of the Velocity template engine.
+ * <p>
+ * Since 2.3.2, each instance holds its own {@link RuntimeInstance} and additional context attributes, so that each
+ * {@link VelocityLanguageDriver} (and therefore each MyBatis {@code Configuration}) uses an isolated engine. The static
+ * methods are kept for backward compatibility and operate on a shared instance.
+ * </p>
+ * <p>
+ * A script for which a {@link TemplateRendererProvider} provides a {@link TemplateRenderer} is rendered by it, instead
+ * of being parsed and interpreted. The renderers are ignored when the engine does not use the default
+ * {@code parser.space_gobbling} mode, uses the strict mode or event handlers, and the renderers of a provider are
+ * ignored when they were generated for another configuration, see {@link #getFingerprint()}.
+ * </p>
+ * <p>
+ * For the same settings, a parsed template can also be translated to a renderer at runtime, see
+ * {@link VelocityLanguageDriverConfig#setRenderCompileThreshold(int)}.
+ * </p>
+ */
 public class VelocityFacade {
 
-  private static final RuntimeInstance engine = new RuntimeInstance();
-  private static final Map<String, Object> additionalCtxAttributes = new HashMap<>();
+  private static final Log log = LogFactory.getLog(VelocityFacade.class);
 
-  private VelocityFacade() {
-    // Prevent instantiation
-  }
+  /**
+   * The version of the {@link RenderContext} operations the renderers are made of, part of the fingerprint.
+   */
+  private static final int RENDERERS_VERSION = 1;
+
+  private static volatile VelocityFacade sharedInstance;
+
+  private final RuntimeInstance engine;
+  private final Map<String, Object> additionalCtxAttributes;
+  private final VelocityContext globalContext;
+  private final String fingerprint;
+  private final String renderersUnsupported;
+  private final boolean renderersSupported;
+  private final List<TemplateRendererProvider> rendererProviders;
 
   /**
-   * Initialize a template engine.
+   * Constructor.
    *
    * @param driverConfig
    *          a language driver configuration
    *
-   * @since 2.1.0
+   * @since 2.3.2
    */
-  public static void initialize(VelocityLanguageDriverConfig driverConfig) {
+  public VelocityFacade(VelocityLanguageDriverConfig driverConfig) {
     Properties properties = new Properties();
     driverConfig.getVelocitySettings().forEach(properties::setProperty);
     properties.setProperty(RuntimeConstants.CUSTOM_DIRECTIVES, driverConfig.generateCustomDirectivesString());
-    engine.init(properties);
-    additionalCtxAttributes.putAll(driverConfig.getAdditionalContextAttributes().entrySet().stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, v -> {
+    if (driverConfig.isWarmUpIntrospection() && !properties.containsKey(RuntimeConstants.UBERSPECT_CLASSNAME)
+        && !properties.containsKey("runtime.introspector.uberspect")) {
+      properties.setProperty(RuntimeConstants.UBERSPECT_CLASSNAME, WarmUpUberspect.class.getName());
+    }
+    this.engine = new RuntimeInstance();
+    this.engine.init(properties);
+    this.additionalCtxAttributes = Collections.unmodifiableMap(driverConfig.getAdditionalContextAttributes().entrySet()
+        .stream().collect(Collectors.toMap(Map.Entry::getKey, v -> {
           try {
             return Resources.classForName(v.getValue()).getConstructor().newInstance();
           } catch (Exception e) {
             throw new ScriptingException("Cannot load additional context attribute class.", e);
           }
         })));
+    this.globalContext = additionalCtxAttributes.isEmpty() ? null : new VelocityContext(this.additionalCtxAttributes);
+    this.fingerprint = fingerprint(driverConfig);
+    this.renderersUnsupported = renderersUnsupported(driverConfig.getVelocitySettings(), this.engine);
+    this.renderersSupported = this.renderersUnsupported == null;
+    this.rendererProviders = this.renderersSupported ? loadRendererProviders() : Collections.emptyList();
+  }
+
+  /**
+   * Return the digest of the settings the output of a template depends on: the velocity settings, the custom
+   * directives and the additional context attributes.
+   */
+  private static String fingerprint(VelocityLanguageDriverConfig driverConfig) {
+    StringBuilder text = new StringBuilder("renderers=").append(RENDERERS_VERSION).append('\n');
+    new TreeMap<>(driverConfig.getVelocitySettings())
+        .forEach((name, value) -> text.append(name).append('=').append(value).append('\n'));
+    text.append(RuntimeConstants.CUSTOM_DIRECTIVES).append('=').append(driverConfig.generateCustomDirectivesString())
+        .append('\n');
+    new TreeMap<>(driverConfig.getAdditionalContextAttributes())
+        .forEach((name, value) -> text.append("additionalContextAttributes.").append(name).append('=').append(value)
+            .append('\n'));
+    return TemplateRendererProvider.digest(text.toString());
+  }
+
+  private static String renderersUnsupported(Map<String, String> settings, RuntimeInstance engine) {
+    String spaceGobbling = engine.getString("parser.space_gobbling");
+    if (spaceGobbling != null && !"lines".equalsIgnoreCase(spaceGobbling.trim())) {
+      return "parser.space_gobbling=" + spaceGobbling + " is not supported";
+    } else if (engine.getBoolean("runtime.strict_mode.enable", false)) {
+      return "runtime.strict_mode.enable=true is not supported";
+    }
+    for (String name : settings.keySet()) {
+      if (name.startsWith("event_handler.") || name.startsWith("eventhandler.")) {
+        return "the event handlers (" + name + ") are not supported";
+      }
+    }
+    return null;
+  }
+
+  private List<TemplateRendererProvider> loadRendererProviders() {
+    List<TemplateRendererProvider> providers = new ArrayList<>();
+    for (TemplateRendererProvider provider : ServiceLoader.load(TemplateRendererProvider.class)) {
+      if (this.fingerprint.equals(provider.getFingerprint())) {
+        providers.add(provider);
+      } else {
+        log.warn("The renderers of " + provider.getClass().getName()
+            + " are ignored, they were generated for another configuration of the template engine");
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * Return the fingerprint of the configuration of the template engine, which the renderers of a
+   * {@link TemplateRendererProvider} must have been generated for to be used.
+   *
+   * @return the hexadecimal digest of the velocity settings, the custom directives and the additional context
+   *         attributes
+   *
+   * @since 2.3.2
+   */
+  public String getFingerprint() {
+    return this.fingerprint;
+  }
+
+  /**
+   * Return why the template engine cannot render the templates with {@link TemplateRenderer}s.
+   *
+   * @return the reason, or {@code null} if the renderers can be used
+   *
+   * @since 2.3.2
+   */
+  public String getRenderersUnsupportedReason() {
+    return this.renderersUnsupported;
   }
 
   /**
-   * Destroy a template engine.
+   * Initialize a shared template engine.
+   *
+   * @param driverConfig
+   *          a language driver configuration
    *
    * @since 2.1.0
+   *
+   * @deprecated Since 2.3.2, please use {@link #VelocityFacade(VelocityLanguageDriverConfig)}
    */
+  @Deprecated
+  public static void initialize(VelocityLanguageDriverConfig driverConfig) {
+    sharedInstance = new VelocityFacade(driverConfig);
+  }
+
+  /**
+   * Destroy a shared template engine.
+   *
+   * @since 2.1.0
+   *
+   * @deprecated Since 2.3.2, the engine of an instance is released together with the instance
+   */
+  @Deprecated
   public static void destroy() {
-    engine.reset();
-    additionalCtxAttributes.clear();
+    sharedInstance = null;
   }
 
+  /**
+   * Compile a script using the shared template engine.
+   *
+   * @param script
+   *          a script
+   * @param name
+   *          a template name
+   *
+   * @return a compiled template
+   *
+   * @deprecated Since 2.3.2, please use {@link #compileTemplate(String, String)}
+   */
+  @Deprecated
   public static Object compile(String script, String name) {
+    return getSharedInstance().compileTemplate(script, name);
+  }
+
+  /**
+   * Apply a context to a template compiled by the shared template engine.
+   *
+   * @param template
+   *          a compiled template
+   * @param context
+   *          a context
+   *
+   * @return a rendered string
+   *
+   * @deprecated Since 2.3.2, please use {@link #applyTemplate(Object, Map)}
+   */
+  @Deprecated
+  public static String apply(Object template, Map<String, Object> context) {
+    return getSharedInstance().applyTemplate(template, context);
+  }
+
+  static VelocityFacade getSharedInstance() {
+    VelocityFacade instance = sharedInstance;
+    if (instance == null) {
+      synchronized (VelocityFacade.class) {
+        instance = sharedInstance;
+        if (instance == null) {
+          instance = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+          sharedInstance = instance;
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Compile a script.
+   *
+   * @param script
+   *          a script
+   * @param name
+   *          a template name
+   *
+   * @return a compiled template
+   *
+   * @since 2.3.2
+   */
+  public Object compileTemplate(String script, String name) {
+    TemplateRenderer renderer = findRenderer(script);
+    if (renderer != null) {
+      return new PrecompiledTemplate(renderer, this.engine, name);
+    }
+    return parseTemplate(script, name);
+  }
+
+  /**
+   * Parse a script into a Velocity template, even if a {@link TemplateRenderer} is provided for it.
+   *
+   * @param script
+   *          a script
+   * @param name
+   *          a template name
+   *
+   * @return the template
+   *
+   * @since 2.3.2
+   */
+  public Template parseTemplate(String script, String name) {
     try {
       StringReader reader = new StringReader(script);
-      Template template = new Template();
+      Template template = new SQLTemplate();
       SimpleNode node = engine.parse(reader, template);
       template.setRuntimeServices(engine);
       template.setData(node);
@@ -88,10 +296,93 @@ public class VelocityFacade {
     }
   }
 
-  public static String apply(Object template, Map<String, Object> context) {
-    final StringWriter out = new StringWriter();
-    context.putAll(additionalCtxAttributes);
-    ((Template) template).merge(new VelocityContext(context), out);
+  /**
+   * Translate a parsed template to a {@link TemplateRenderer}, so that it is not interpreted anymore.
+   *
+   * @param template
+   *          a template compiled by {@link #compileTemplate(String, String)}
+   *
+   * @return the translated template, or {@code null} if the template is already translated, or cannot be
+   */
+  Object translateTemplate(Object template) {
+    if (!this.renderersSupported || !(template instanceof Template)) {
+      return null;
+    }
+    TemplateRenderer renderer = TemplateTranslator.toRenderer((Template) template);
+    return renderer == null ? null : new PrecompiledTemplate(renderer, this.engine, ((Template) template).getName());
+  }
+
+  /**
+   * Return the uberspect of the template engine, if it can introspect a class before rendering it.
+   */
+  WarmUpUberspect getWarmUpUberspect() {
+    Object uberspect = this.engine.getUberspect();
+    return uberspect instanceof WarmUpUberspect ? (WarmUpUberspect) uberspect : null;
+  }
+
+  /**
+   * Return whether a name is a variable of all the render contexts, rather than a property of the parameter object.
+   */
+  boolean isContextName(String name) {
+    return SQLScriptSource.PARAMETER_OBJECT_KEY.equals(name) || SQLScriptSource.DATABASE_ID_KEY.equals(name)
+        || SQLScriptSource.MAPPING_COLLECTOR_KEY.equals(name) || SQLScriptSource.VARIABLES_KEY.equals(name)
+        || this.additionalCtxAttributes.containsKey(name);
+  }
+
+  private TemplateRenderer findRenderer(String script) {
+    if (this.rendererProviders.isEmpty()) {
+      return null;
+    }
+    String digest = TemplateRendererProvider.digest(script);
+    for (TemplateRendererProvider provider : this.rendererProviders) {
+      TemplateRenderer renderer = provider.getRenderer(digest);
+      if (renderer != null) {
+        return renderer;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Apply a context to a compiled template.
+   * <p>
+   * The additional context attributes can be referenced from the template, but they are not added to the given map.
+   * </p>
+   *
+   * @param template
+   *          a compiled template
+   * @param context
+   *          a context
+   *
+   * @return a rendered string
+   *
+   * @since 2.3.2
+   */
+  public String applyTemplate(Object template, Map<String, Object> context) {
+    return merge(template, newContext(context));
+  }
+
+  /**
+   * Create a render context. The additional context attributes are resolved through an immutable parent context shared
+   * by all renders, so that the given map holds only the per-render entries.
+   */
+  VelocityContext newContext(Map<String, Object> context) {
+    return globalContext == null ? new VelocityContext(context) : new VelocityContext(context, globalContext);
+  }
+
+  String merge(Object template, VelocityContext context) {
+    if (template instanceof PrecompiledTemplate) {
+      return ((PrecompiledTemplate) template).merge(context);
+    }
+    if (template instanceof SQLTemplate) {
+      final OutputSizeHint outputSize = ((SQLTemplate) template).getOutputSize();
+      final SQLWriter out = outputSize.newWriter();
+      ((Template) template).merge(context, out);
+      outputSize.record(out.length());
+      return out.toString();
+    }
+    final SQLWriter out = new SQLWriter(64);
+    ((Template) template).merge(context, out);
     return out.toString();
   }
 
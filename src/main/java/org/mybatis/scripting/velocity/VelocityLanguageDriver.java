@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,13 +15,27 @@
  */
 package org.mybatis.scripting.velocity;
 
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.scripting.LanguageDriver;
-import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -34,7 +48,21 @@ import org.apache.ibatis.session.Configuration;
  *
  * @author Kazuki Shimizu
  */
-public class VelocityLanguageDriver implements LanguageDriver {
+public class VelocityLanguageDriver implements LanguageDriver, AutoCloseable {
+
+  private static final Log log = LogFactory.getLog(VelocityLanguageDriver.class);
+
+  private final VelocityLanguageDriverConfig driverConfig;
+  private final VelocityFacade velocityFacade;
+  private final GetterTypeCache getterTypeCache = new GetterTypeCache();
+  private final CompileCache<SqlSource> compileCache;
+  private final List<RenderListener> renderListeners = new CopyOnWriteArrayList<>();
+  private final RenderMetrics renderMetrics;
+  private final SlowRenderSampler slowRenderSampler;
+  private final ObjectName renderMetricsName;
+  private Executor compileExecutor;
+  private ForkJoinPool compilePool;
+  private boolean closed;
 
   /**
    * Default constructor.
@@ -50,7 +78,87 @@ public class VelocityLanguageDriver implements LanguageDriver {
    *          a language driver configuration
    */
   public VelocityLanguageDriver(VelocityLanguageDriverConfig driverConfig) {
-    VelocityFacade.initialize(driverConfig);
+    this(driverConfig, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param driverConfig
+   *          a language driver configuration
+   * @param compileExecutor
+   *          the executor that compiles the templates in the parallel compile mode (e.g. a virtual thread executor),
+   *          or {@code null} to use a pool of {@link VelocityLanguageDriverConfig#getCompileParallelism()} threads
+   *
+   * @since 2.3.2
+   */
+  public VelocityLanguageDriver(VelocityLanguageDriverConfig driverConfig, Executor compileExecutor) {
+    this.driverConfig = driverConfig;
+    this.velocityFacade = new VelocityFacade(driverConfig);
+    this.compileExecutor = compileExecutor;
+    this.compileCache = driverConfig.getCompileCacheSize() > 0 ? new CompileCache<>(driverConfig.getCompileCacheSize())
+        : null;
+    for (String listener : driverConfig.getRenderListeners()) {
+      try {
+        this.renderListeners.add((RenderListener) Resources.classForName(listener).getConstructor().newInstance());
+      } catch (Exception e) {
+        throw new ScriptingException("Cannot load render listener class.", e);
+      }
+    }
+    this.renderMetrics = driverConfig.isRenderMetrics() || driverConfig.isRenderMetricsJmx() ? new RenderMetrics()
+        : null;
+    if (this.renderMetrics != null) {
+      this.renderListeners.add(this.renderMetrics);
+    }
+    this.renderMetricsName = driverConfig.isRenderMetricsJmx()
+        ? registerMBean(this.renderMetrics, driverConfig.getRenderMetricsJmxName())
+        : null;
+    this.slowRenderSampler = driverConfig.getSlowRenderThreshold() > 0
+        ? new SlowRenderSampler(driverConfig.getSlowRenderThreshold(), driverConfig.getSlowRenderSamples())
+        : null;
+  }
+
+  private static ObjectName registerMBean(RenderMetrics renderMetrics, String metricsName) {
+    try {
+      ObjectName name = new ObjectName("org.mybatis.scripting.velocity:type=RenderMetrics,name=" + metricsName);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(renderMetrics, name);
+      return name;
+    } catch (InstanceAlreadyExistsException e) {
+      log.warn("Cannot register the render metrics MBean, '" + metricsName
+          + "' is already registered: set a unique renderMetricsJmxName per language driver");
+    } catch (JMException | SecurityException e) {
+      log.warn("Cannot register the render metrics MBean: " + e);
+    }
+    return null;
+  }
+
+  /**
+   * Unregister the render metrics MBean, if it is registered, and shut down the compile pool, if the driver created
+   * one. An executor given to the constructor is not shut down. The driver can still be used, the templates being then
+   * compiled and translated on the rendering thread.
+   *
+   * @since 2.3.2
+   *
+   * @see VelocityLanguageDriverConfig#setRenderMetricsJmx(boolean)
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      this.closed = true;
+      if (this.compilePool != null) {
+        this.compilePool.shutdown();
+        this.compilePool = null;
+        this.compileExecutor = null;
+      }
+    }
+    if (this.renderMetricsName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.renderMetricsName);
+    } catch (JMException | SecurityException e) {
+      log.debug("Cannot unregister the render metrics MBean: " + e);
+    }
   }
 
   /**
@@ -59,7 +167,7 @@ public class VelocityLanguageDriver implements LanguageDriver {
   @Override
   public ParameterHandler createParameterHandler(MappedStatement mappedStatement, Object parameterObject,
       BoundSql boundSql) {
-    return new DefaultParameterHandler(mappedStatement, parameterObject, boundSql);
+    return new SQLScriptParameterHandler(mappedStatement, parameterObject, boundSql);
   }
 
   /**
@@ -67,8 +175,28 @@ public class VelocityLanguageDriver implements LanguageDriver {
    */
   @Override
   public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterTypeClass) {
-    return new SQLScriptSource(configuration, script.getNode().getTextContent(),
-        parameterTypeClass == null ? Object.class : parameterTypeClass);
+    // A statement of a mapper file is created once, the compile cache is not needed
+    return newSqlSource(configuration, script.getNode().getTextContent(),
+        parameterTypeClass == null ? Object.class : parameterTypeClass, statementName(script));
+  }
+
+  /**
+   * Return the id of the statement of a mapper file, like {@code MapperBuilderAssistant} does.
+   */
+  private static String statementName(XNode script) {
+    XNode statement = script;
+    String suffix = "";
+    if ("selectKey".equals(script.getName()) && script.getParent() != null) {
+      statement = script.getParent();
+      suffix = "!selectKey";
+    }
+    String id = statement.getStringAttribute("id");
+    if (id == null) {
+      return null;
+    }
+    XNode mapper = statement.getParent();
+    String namespace = mapper == null ? null : mapper.getStringAttribute("namespace");
+    return (namespace == null || id.startsWith(namespace + ".") ? id : namespace + "." + id) + suffix;
   }
 
   /**
@@ -76,7 +204,136 @@ public class VelocityLanguageDriver implements LanguageDriver {
    */
   @Override
   public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterTypeClass) {
-    return new SQLScriptSource(configuration, script, parameterTypeClass == null ? Object.class : parameterTypeClass);
+    Class<?> parameterType = parameterTypeClass == null ? Object.class : parameterTypeClass;
+    if (this.compileCache == null) {
+      return newSqlSource(configuration, script, parameterType, null);
+    }
+    return this.compileCache.get(new CompileCache.Key(configuration, parameterType, script),
+        () -> newSqlSource(configuration, script, parameterType, null));
+  }
+
+  private SqlSource newSqlSource(Configuration configuration, String script, Class<?> parameterType,
+      String statementName) {
+    if (StaticScriptSource.isStatic(script)) {
+      return new StaticScriptSource(configuration, script, parameterType, this, statementName);
+    }
+    SQLScriptSource sqlSource = new SQLScriptSource(configuration, script, parameterType, this, statementName);
+    if (this.driverConfig.getCompileMode() == VelocityLanguageDriverConfig.CompileMode.PARALLEL
+        && !this.driverConfig.isValidateTemplates()) {
+      sqlSource.compileInBackground(getCompileExecutor());
+    }
+    return sqlSource;
+  }
+
+  /**
+   * Add a listener of the renders of the statements.
+   *
+   * @param listener
+   *          the listener
+   *
+   * @since 2.3.2
+   */
+  public void addRenderListener(RenderListener listener) {
+    this.renderListeners.add(listener);
+  }
+
+  /**
+   * Return the render metrics.
+   *
+   * @return the render metrics, or {@code null} if the renders are not counted
+   *
+   * @since 2.3.2
+   *
+   * @see VelocityLanguageDriverConfig#setRenderMetrics(boolean)
+   */
+  public RenderMetrics getRenderMetrics() {
+    return this.renderMetrics;
+  }
+
+  /**
+   * Return the name of the render metrics MBean.
+   *
+   * @return the name, or {@code null} if the render metrics are not registered
+   *
+   * @since 2.3.2
+   *
+   * @see VelocityLanguageDriverConfig#setRenderMetricsJmxName(String)
+   */
+  public ObjectName getRenderMetricsObjectName() {
+    return this.renderMetricsName;
+  }
+
+  /**
+   * Return the sampler of the slow renders.
+   *
+   * @return the sampler, or {@code null} if the renders are not sampled
+   *
+   * @since 2.3.2
+   *
+   * @see VelocityLanguageDriverConfig#setSlowRenderThreshold(int)
+   */
+  public SlowRenderSampler getSlowRenderSampler() {
+    return this.slowRenderSampler;
+  }
+
+  List<RenderListener> getRenderListeners() {
+    return this.renderListeners;
+  }
+
+  /**
+   * Return the statistics of the compile cache.
+   *
+   * @return the statistics, or {@code null} if the compile cache is disabled
+   *
+   * @since 2.3.2
+   *
+   * @see VelocityLanguageDriverConfig#setCompileCacheSize(int)
+   */
+  public CompileCacheStats getCompileCacheStats() {
+    return this.compileCache == null ? null : this.compileCache.stats();
+  }
+
+  VelocityLanguageDriverConfig getDriverConfig() {
+    return this.driverConfig;
+  }
+
+  VelocityFacade getVelocityFacade() {
+    return this.velocityFacade;
+  }
+
+  GetterTypeCache getGetterTypeCache() {
+    return this.getterTypeCache;
+  }
+
+  /**
+   * Return the executor that compiles the templates in the parallel compile mode and translates them in background,
+   * creating the default pool on the first call, so that no pool is created until some work is submitted. Once the
+   * driver is closed, the work runs on the calling thread.
+   */
+  synchronized Executor getCompileExecutor() {
+    if (this.compileExecutor == null) {
+      if (this.closed) {
+        return Runnable::run;
+      }
+      int parallelism = this.driverConfig.getCompileParallelism() > 0 ? this.driverConfig.getCompileParallelism()
+          : Runtime.getRuntime().availableProcessors();
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      this.compilePool = new ForkJoinPool(parallelism, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("mybatis-velocity-compiler-" + thread.getPoolIndex());
+        thread.setContextClassLoader(classLoader);
+        return thread;
+      }, null, true);
+      this.compileExecutor = this.compilePool;
+    }
+    return this.compileExecutor;
+  }
+
+  /**
+   * Return whether the driver created a compile pool that is not shut down yet.
+   */
+  synchronized boolean hasCompilePool() {
+    return this.compilePool != null;
   }
 
 }
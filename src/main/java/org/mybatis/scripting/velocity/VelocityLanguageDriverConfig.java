@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -62,7 +63,8 @@ public class VelocityLanguageDriverConfig {
   private static final String DEFAULT_PROPERTIES_FILE = "mybatis-velocity.properties";
   private static final String PROPERTY_KEY_ADDITIONAL_CONTEXT_ATTRIBUTE = "additional.context.attributes";
   private static final String[] BUILT_IN_DIRECTIVES = { TrimDirective.class.getName(), WhereDirective.class.getName(),
-      SetDirective.class.getName(), InDirective.class.getName(), RepeatDirective.class.getName() };
+      SetDirective.class.getName(), InDirective.class.getName(), RepeatDirective.class.getName(),
+      ValuesDirective.class.getName() };
 
   private static final Map<Class<?>, Function<String, Object>> TYPE_CONVERTERS;
   static {
@@ -70,6 +72,9 @@ public class VelocityLanguageDriverConfig {
     converters.put(String.class, String::trim);
     converters.put(Charset.class, v -> Charset.forName(v.trim()));
     converters.put(String[].class, v -> Stream.of(v.split(",")).map(String::trim).toArray(String[]::new));
+    converters.put(int.class, v -> Integer.valueOf(v.trim()));
+    converters.put(boolean.class, v -> Boolean.valueOf(v.trim()));
+    converters.put(CompileMode.class, v -> CompileMode.valueOf(v.trim().toUpperCase(Locale.ENGLISH)));
     converters.put(Object.class, v -> v);
     TYPE_CONVERTERS = Collections.unmodifiableMap(converters);
   }
@@ -95,6 +100,71 @@ public class VelocityLanguageDriverConfig {
    */
   private final Map<String, String> additionalContextAttributes = new HashMap<>();
 
+  /**
+   * The maximum number of SQL shapes cached per statement.
+   */
+  private int shapeCacheSize;
+
+  /**
+   * When the templates are compiled.
+   */
+  private CompileMode compileMode = CompileMode.EAGER;
+
+  /**
+   * Whether the templates are compiled when they are loaded, whatever the compile mode.
+   */
+  private boolean validateTemplates;
+
+  /**
+   * The maximum number of threads that compile the templates in the parallel compile mode.
+   */
+  private int compileParallelism;
+
+  /**
+   * The number of renders after which a template is translated to a renderer.
+   */
+  private int renderCompileThreshold;
+
+  /**
+   * The maximum number of compiled scripts shared by the statements of the same script.
+   */
+  private int compileCacheSize;
+
+  /**
+   * The class names of the render listeners.
+   */
+  private String[] renderListeners = {};
+
+  /**
+   * Whether the renders of each statement are counted.
+   */
+  private boolean renderMetrics;
+
+  /**
+   * Whether the render metrics are registered as an MBean.
+   */
+  private boolean renderMetricsJmx;
+
+  /**
+   * The name of the render metrics MBean.
+   */
+  private String renderMetricsJmxName = "default";
+
+  /**
+   * The render time from which a render is sampled, in milliseconds.
+   */
+  private int slowRenderThreshold;
+
+  /**
+   * The number of slow renders kept.
+   */
+  private int slowRenderSamples = 100;
+
+  /**
+   * Whether the properties of the parameter type are introspected when the templates are compiled.
+   */
+  private boolean warmUpIntrospection;
+
   /**
    * Get Velocity settings.
    *
@@ -144,6 +214,330 @@ public class VelocityLanguageDriverConfig {
     return additionalContextAttributes;
   }
 
+  /**
+   * Get the maximum number of SQL shapes cached per statement.
+   * <p>
+   * Default is {@code 0} (disabled).
+   * </p>
+   *
+   * @return the maximum number of SQL shapes cached per statement
+   *
+   * @since 2.3.2
+   */
+  public int getShapeCacheSize() {
+    return shapeCacheSize;
+  }
+
+  /**
+   * Set the maximum number of SQL shapes cached per statement.
+   * <p>
+   * When enabled, a statement whose output depends only on the outcome of its {@code #if} conditions, the sizes of the
+   * collections it iterates and the database id reuses the SQL and parameter mappings of a previous render with the
+   * same outcomes instead of merging the template again. Other statements are always rendered.
+   * </p>
+   *
+   * @param shapeCacheSize
+   *          the maximum number of SQL shapes cached per statement, {@code 0} disables the cache
+   *
+   * @since 2.3.2
+   */
+  public void setShapeCacheSize(int shapeCacheSize) {
+    this.shapeCacheSize = shapeCacheSize;
+  }
+
+  /**
+   * Get when the templates are compiled.
+   *
+   * @return the compile mode
+   *
+   * @since 2.3.2
+   */
+  public CompileMode getCompileMode() {
+    return compileMode;
+  }
+
+  /**
+   * Set when the templates are compiled.
+   *
+   * @param compileMode
+   *          the compile mode
+   *
+   * @since 2.3.2
+   */
+  public void setCompileMode(CompileMode compileMode) {
+    this.compileMode = compileMode;
+  }
+
+  /**
+   * Get whether the templates are compiled when they are loaded, whatever the compile mode.
+   *
+   * @return {@code true} if the templates are validated when they are loaded
+   *
+   * @since 2.3.2
+   */
+  public boolean isValidateTemplates() {
+    return validateTemplates;
+  }
+
+  /**
+   * Set whether the templates are compiled when they are loaded, whatever the compile mode, so that the errors of all
+   * the templates are reported when the mappers are loaded (e.g. in tests).
+   *
+   * @param validateTemplates
+   *          {@code true} to validate the templates when they are loaded
+   *
+   * @since 2.3.2
+   */
+  public void setValidateTemplates(boolean validateTemplates) {
+    this.validateTemplates = validateTemplates;
+  }
+
+  /**
+   * Get the maximum number of threads that compile the templates in the parallel compile mode.
+   *
+   * @return the maximum number of threads, {@code 0} for the number of available processors
+   *
+   * @since 2.3.2
+   */
+  public int getCompileParallelism() {
+    return compileParallelism;
+  }
+
+  /**
+   * Set the maximum number of threads that compile the templates in the parallel compile mode.
+   *
+   * @param compileParallelism
+   *          the maximum number of threads, {@code 0} for the number of available processors
+   *
+   * @since 2.3.2
+   */
+  public void setCompileParallelism(int compileParallelism) {
+    this.compileParallelism = compileParallelism;
+  }
+
+  /**
+   * Get the number of renders of a statement after which its template is translated to a renderer.
+   *
+   * @return the number of renders, {@code 0} if the templates are always interpreted
+   *
+   * @since 2.3.2
+   */
+  public int getRenderCompileThreshold() {
+    return renderCompileThreshold;
+  }
+
+  /**
+   * Set the number of renders of a statement after which its template is translated, in background, to a renderer
+   * made of the same operations as the renderers generated at build time. Templates that use other constructs than
+   * texts, references, {@code #if}, {@code #foreach}, {@code #set}, {@code #where}, {@code #mset}, {@code #trim},
+   * {@code #repeat} and {@code #in} stay interpreted.
+   *
+   * @param renderCompileThreshold
+   *          the number of renders, {@code 0} to always interpret the templates
+   *
+   * @since 2.3.2
+   */
+  public void setRenderCompileThreshold(int renderCompileThreshold) {
+    this.renderCompileThreshold = renderCompileThreshold;
+  }
+
+  /**
+   * Get the maximum number of compiled scripts kept in the compile cache.
+   *
+   * @return the maximum number of compiled scripts, {@code 0} if the cache is disabled
+   *
+   * @since 2.3.2
+   */
+  public int getCompileCacheSize() {
+    return compileCacheSize;
+  }
+
+  /**
+   * Set the maximum number of compiled scripts kept in the compile cache. The statements created for the same script,
+   * parameter type and configuration, like those of a {@code @SelectProvider} that are created on each call, then
+   * share one compiled script instead of compiling it again. The scripts used the most often are kept when the cache
+   * is full.
+   *
+   * @param compileCacheSize
+   *          the maximum number of compiled scripts, {@code 0} to disable the cache
+   *
+   * @since 2.3.2
+   */
+  public void setCompileCacheSize(int compileCacheSize) {
+    this.compileCacheSize = compileCacheSize;
+  }
+
+  /**
+   * Get the class names of the render listeners.
+   *
+   * @return the class names of the render listeners
+   *
+   * @since 2.3.2
+   */
+  public String[] getRenderListeners() {
+    return renderListeners;
+  }
+
+  /**
+   * Set the class names of the {@link RenderListener}s, created with their default constructor, that are called after
+   * each render.
+   *
+   * @param renderListeners
+   *          the class names of the render listeners
+   *
+   * @since 2.3.2
+   */
+  public void setRenderListeners(String... renderListeners) {
+    this.renderListeners = renderListeners;
+  }
+
+  /**
+   * Get whether the renders of each statement are counted.
+   *
+   * @return {@code true} if the renders are counted
+   *
+   * @since 2.3.2
+   */
+  public boolean isRenderMetrics() {
+    return renderMetrics;
+  }
+
+  /**
+   * Set whether the renders of each statement are counted by a {@link RenderMetrics}, returned by
+   * {@link VelocityLanguageDriver#getRenderMetrics()}.
+   *
+   * @param renderMetrics
+   *          {@code true} to count the renders
+   *
+   * @since 2.3.2
+   */
+  public void setRenderMetrics(boolean renderMetrics) {
+    this.renderMetrics = renderMetrics;
+  }
+
+  /**
+   * Get whether the render metrics are registered as an MBean.
+   *
+   * @return {@code true} if the render metrics are registered
+   *
+   * @since 2.3.2
+   */
+  public boolean isRenderMetricsJmx() {
+    return renderMetricsJmx;
+  }
+
+  /**
+   * Set whether the render metrics are registered in the platform MBean server, as
+   * {@code org.mybatis.scripting.velocity:type=RenderMetrics,name=<name>} (see
+   * {@link #setRenderMetricsJmxName(String)}). The renders are then counted, whatever
+   * {@link #setRenderMetrics(boolean)}. The MBean is unregistered by {@link VelocityLanguageDriver#close()}.
+   *
+   * @param renderMetricsJmx
+   *          {@code true} to register the render metrics
+   *
+   * @since 2.3.2
+   */
+  public void setRenderMetricsJmx(boolean renderMetricsJmx) {
+    this.renderMetricsJmx = renderMetricsJmx;
+  }
+
+  /**
+   * Get the name of the render metrics MBean.
+   *
+   * @return the name of the MBean
+   *
+   * @since 2.3.2
+   */
+  public String getRenderMetricsJmxName() {
+    return renderMetricsJmxName;
+  }
+
+  /**
+   * Set the name of the render metrics MBean, which has to be unique among the language drivers of a JVM (e.g. the
+   * name of the application).
+   *
+   * @param renderMetricsJmxName
+   *          the name of the MBean, {@code default} by default
+   *
+   * @since 2.3.2
+   */
+  public void setRenderMetricsJmxName(String renderMetricsJmxName) {
+    this.renderMetricsJmxName = renderMetricsJmxName;
+  }
+
+  /**
+   * Get the render time from which a render is sampled.
+   *
+   * @return the render time in milliseconds, {@code 0} if the renders are not sampled
+   *
+   * @since 2.3.2
+   */
+  public int getSlowRenderThreshold() {
+    return slowRenderThreshold;
+  }
+
+  /**
+   * Set the render time from which a render is sampled, with the shape of its parameter object, by a
+   * {@link SlowRenderSampler} returned by {@link VelocityLanguageDriver#getSlowRenderSampler()}.
+   *
+   * @param slowRenderThreshold
+   *          the render time in milliseconds, {@code 0} to not sample the renders
+   *
+   * @since 2.3.2
+   */
+  public void setSlowRenderThreshold(int slowRenderThreshold) {
+    this.slowRenderThreshold = slowRenderThreshold;
+  }
+
+  /**
+   * Get the number of slow renders kept.
+   *
+   * @return the number of slow renders kept
+   *
+   * @since 2.3.2
+   */
+  public int getSlowRenderSamples() {
+    return slowRenderSamples;
+  }
+
+  /**
+   * Set the number of slow renders kept, the most recent ones.
+   *
+   * @param slowRenderSamples
+   *          the number of slow renders kept
+   *
+   * @since 2.3.2
+   */
+  public void setSlowRenderSamples(int slowRenderSamples) {
+    this.slowRenderSamples = slowRenderSamples;
+  }
+
+  /**
+   * Get whether the properties of the parameter type are introspected when the templates are compiled.
+   *
+   * @return {@code true} if the properties are introspected when the templates are compiled
+   *
+   * @since 2.3.2
+   */
+  public boolean isWarmUpIntrospection() {
+    return warmUpIntrospection;
+  }
+
+  /**
+   * Set whether the properties that a statement references ({@code $_parameter.name} references and {@code @{}}
+   * parameters) are introspected against its parameter type when its template is compiled, rather than on its first
+   * renders. A property that the parameter type does not have (e.g. a misspelled property) is logged as a warning.
+   * The {@link WarmUpUberspect} is used, unless another uberspect is set in the velocity settings.
+   *
+   * @param warmUpIntrospection
+   *          {@code true} to introspect the properties when the templates are compiled
+   *
+   * @since 2.3.2
+   */
+  public void setWarmUpIntrospection(boolean warmUpIntrospection) {
+    this.warmUpIntrospection = warmUpIntrospection;
+  }
+
   /**
    * Generate a custom directives string.
    *
@@ -195,6 +589,77 @@ public class VelocityLanguageDriverConfig {
    * <td>-</td>
    * </tr>
    * <tr>
+   * <th colspan="3">Render configuration</th>
+   * </tr>
+   * <tr>
+   * <td>shape-cache-size</td>
+   * <td>The maximum number of SQL shapes cached per statement(see {@link #setShapeCacheSize(int)})</td>
+   * <td>0(disabled)</td>
+   * </tr>
+   * <tr>
+   * <td>compile-mode</td>
+   * <td>When the templates are compiled: {@code eager}, {@code lazy} or {@code parallel}(see {@link CompileMode})</td>
+   * <td>eager</td>
+   * </tr>
+   * <tr>
+   * <td>compile-parallelism</td>
+   * <td>The maximum number of threads that compile the templates in the parallel compile mode</td>
+   * <td>0(the number of available processors)</td>
+   * </tr>
+   * <tr>
+   * <td>validate-templates</td>
+   * <td>Whether the templates are compiled when they are loaded, whatever the compile mode</td>
+   * <td>false</td>
+   * </tr>
+   * <tr>
+   * <td>render-compile-threshold</td>
+   * <td>The number of renders after which a template is translated to a renderer(see
+   * {@link #setRenderCompileThreshold(int)})</td>
+   * <td>0(disabled)</td>
+   * </tr>
+   * <tr>
+   * <td>compile-cache-size</td>
+   * <td>The maximum number of compiled scripts shared by the statements of the same script(see
+   * {@link #setCompileCacheSize(int)})</td>
+   * <td>0(disabled)</td>
+   * </tr>
+   * <tr>
+   * <td>render-listeners</td>
+   * <td>The class names of the {@link RenderListener}s, separated by commas</td>
+   * <td>None(empty)</td>
+   * </tr>
+   * <tr>
+   * <td>render-metrics</td>
+   * <td>Whether the renders of each statement are counted(see {@link #setRenderMetrics(boolean)})</td>
+   * <td>false</td>
+   * </tr>
+   * <tr>
+   * <td>render-metrics-jmx</td>
+   * <td>Whether the render metrics are registered as an MBean(see {@link #setRenderMetricsJmx(boolean)})</td>
+   * <td>false</td>
+   * </tr>
+   * <tr>
+   * <td>render-metrics-jmx-name</td>
+   * <td>The name of the render metrics MBean(see {@link #setRenderMetricsJmxName(String)})</td>
+   * <td>default</td>
+   * </tr>
+   * <tr>
+   * <td>slow-render-threshold</td>
+   * <td>The render time in milliseconds from which a render is sampled(see {@link #setSlowRenderThreshold(int)})</td>
+   * <td>0(disabled)</td>
+   * </tr>
+   * <tr>
+   * <td>slow-render-samples</td>
+   * <td>The number of slow renders kept</td>
+   * <td>100</td>
+   * </tr>
+   * <tr>
+   * <td>warm-up-introspection</td>
+   * <td>Whether the properties of the parameter type are introspected when the templates are compiled(see
+   * {@link #setWarmUpIntrospection(boolean)})</td>
+   * <td>false</td>
+   * </tr>
+   * <tr>
    * <th colspan="3">Velocity settings configuration</th>
    * </tr>
    * <tr>
@@ -327,4 +792,29 @@ public class VelocityLanguageDriverConfig {
     return properties;
   }
 
+  /**
+   * When the templates are compiled.
+   *
+   * @since 2.3.2
+   */
+  public enum CompileMode {
+
+    /**
+     * Compile a template when its statement is loaded.
+     */
+    EAGER,
+
+    /**
+     * Compile a template when its statement is used for the first time.
+     */
+    LAZY,
+
+    /**
+     * Compile a template in the background when its statement is loaded. A statement used before its template is
+     * compiled waits for the compilation, or compiles the template itself if the compilation has not started yet.
+     */
+    PARALLEL
+
+  }
+
 }
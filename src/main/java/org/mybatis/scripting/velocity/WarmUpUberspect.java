@@ -0,0 +1,79 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.apache.velocity.util.introspection.Info;
+import org.apache.velocity.util.introspection.UberspectImpl;
+
+/**
+ * The default Velocity {@link UberspectImpl}, that can also introspect a class before an object of this class is
+ * rendered, so that the first renders of a statement do not introspect the classes of its parameter.
+ * <p>
+ * It is the uberspect of the template engine when the {@code warm-up-introspection} property is enabled, unless
+ * another uberspect is set.
+ * </p>
+ *
+ * @since 2.3.2
+ */
+public class WarmUpUberspect extends UberspectImpl {
+
+  private static final Object[] NO_ARGS = {};
+
+  private static final Object[] NAME_ARG = { "" };
+
+  /**
+   * Introspect a class to resolve a property, like {@link #getPropertyGet(Object, String, Info)} does for an object
+   * of this class: with a {@code getName()}, {@code getname()} or boolean {@code isName()} getter, or a
+   * {@code get(String)} method.
+   *
+   * @param type
+   *          the class
+   * @param property
+   *          the property name
+   *
+   * @return the type of the property, {@link Object} when it is resolved at render time, or {@code null} if the
+   *         class has no such property
+   */
+  public Class<?> warmUp(Class<?> type, String property) {
+    if (Map.class.isAssignableFrom(type) || property.isEmpty()) {
+      return Object.class;
+    }
+    try {
+      String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+      Method getter = this.introspector.getMethod(type, "get" + capitalized, NO_ARGS);
+      if (getter == null) {
+        getter = this.introspector.getMethod(type, "get" + property, NO_ARGS);
+      }
+      if (getter == null) {
+        Method is = this.introspector.getMethod(type, "is" + capitalized, NO_ARGS);
+        if (is != null && (is.getReturnType() == boolean.class || is.getReturnType() == Boolean.class)) {
+          getter = is;
+        }
+      }
+      if (getter != null) {
+        return getter.getReturnType();
+      }
+      return this.introspector.getMethod(type, "get", NAME_ARG) != null ? Object.class : null;
+    } catch (RuntimeException e) {
+      // e.g. an ambiguous method, which is reported at render time
+      return Object.class;
+    }
+  }
+
+}
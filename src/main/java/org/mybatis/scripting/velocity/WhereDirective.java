@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 package org.mybatis.scripting.velocity;
 
 import java.io.IOException;
-import java.io.StringWriter;
 
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.runtime.parser.node.ASTBlock;
@@ -24,6 +23,9 @@ import org.apache.velocity.runtime.parser.node.Node;
 
 public class WhereDirective extends TrimDirective {
 
+  static final Params PARAMS = new Params.Builder().prefix("WHERE")
+      .prefixOverrides("AND |OR |AND\n|OR\n|AND\r|OR\r").build();
+
   @Override
   public String getName() {
     return "where";
@@ -31,19 +33,26 @@ public class WhereDirective extends TrimDirective {
 
   @Override
   protected Params getParams(InternalContextAdapter context, Node node) throws IOException {
-    final Params params = new Params();
-    params.setPrefix("WHERE");
-    params.setPrefixOverrides("AND |OR |AND\n|OR\n|AND\r|OR\r");
     if (node.jjtGetNumChildren() == 1) {
       final Node child = node.jjtGetChild(0);
       if (child instanceof ASTBlock) {
-        StringWriter blockContent = new StringWriter();
-        child.render(context, blockContent);
-        params.setBody(blockContent.toString().trim());
-        return params;
+        return PARAMS.withBody(renderBody(context, child));
       }
     }
     return null;
   }
 
+  @Override
+  protected boolean isLiteralParamsEnabled() {
+    return getClass() == WhereDirective.class;
+  }
+
+  @Override
+  protected Params getLiteralParams(InternalContextAdapter context, Node node) {
+    if (node.jjtGetNumChildren() == 1 && node.jjtGetChild(0) instanceof ASTBlock) {
+      return PARAMS;
+    }
+    return null;
+  }
+
 }
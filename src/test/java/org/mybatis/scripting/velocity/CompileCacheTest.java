@@ -0,0 +1,84 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompileCacheTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void sameKeySharesValue() {
+    CompileCache<Object> cache = new CompileCache<>(10);
+    Object value = cache.get(key("SELECT 1"), Object::new);
+    assertSame(value, cache.get(key(new String("SELECT 1")), Object::new));
+    assertNotEquals(value, cache.get(new CompileCache.Key(configuration, Map.class, "SELECT 1"), Object::new));
+    assertNotEquals(value, cache.get(new CompileCache.Key(new Configuration(), Object.class, "SELECT 1"), Object::new));
+
+    CompileCacheStats stats = cache.stats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(3, stats.getMissCount());
+    assertEquals(0, stats.getEvictionCount());
+    assertEquals(3, stats.getSize());
+  }
+
+  @Test
+  void frequentScriptsAreKept() {
+    CompileCache<Object> cache = new CompileCache<>(100);
+    for (int i = 0; i < 50; i++) {
+      cache.get(key("frequent " + i), Object::new);
+    }
+    for (int i = 0; i < 1000; i++) {
+      cache.get(key("once " + i), Object::new);
+      cache.get(key("frequent " + i % 50), Object::new);
+    }
+    assertTrue(cache.size() <= 100, "size " + cache.size());
+    long missesBefore = cache.stats().getMissCount();
+    for (int i = 0; i < 50; i++) {
+      cache.get(key("frequent " + i), Object::new);
+    }
+    CompileCacheStats stats = cache.stats();
+    assertEquals(missesBefore, stats.getMissCount());
+    assertEquals(stats.getMissCount() - stats.getSize(), stats.getEvictionCount());
+  }
+
+  @Test
+  void frequencySketchAges() {
+    CompileCache.FrequencySketch sketch = new CompileCache.FrequencySketch(8);
+    for (int i = 0; i < 10; i++) {
+      sketch.increment(42);
+    }
+    assertEquals(10, sketch.frequency(42));
+    for (int i = 0; i < 70; i++) {
+      sketch.increment(i * 7919);
+    }
+    assertTrue(sketch.frequency(42) < 10, "frequency " + sketch.frequency(42));
+  }
+
+  private CompileCache.Key key(String script) {
+    return new CompileCache.Key(configuration, Object.class, script);
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.junit.jupiter.api.Test;
+
+class GetterTypeCacheTest {
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final GetterTypeCache cache = new GetterTypeCache();
+
+  @Test
+  void typesMatchMetaClass() {
+    String[] properties = { "id", "address", "address.zipCode", "addresses", "addresses[0]", "addresses[0].zipCode",
+        "scores", "scores.math", "scores[math]", "missing", "address.missing" };
+    MetaClass metaClass = MetaClass.forClass(Person.class, reflectorFactory);
+    for (String property : properties) {
+      Class<?> expected = metaClass.hasGetter(property) ? metaClass.getGetterType(property) : Object.class;
+      assertSame(expected, cache.getGetterType(reflectorFactory, Person.class, property), property);
+      // Served by the cache
+      assertSame(expected, cache.getGetterType(reflectorFactory, Person.class, property), property);
+    }
+    assertSame(String.class, cache.getGetterType(reflectorFactory, Person.class, "address.zipCode"));
+    assertSame(Object.class, cache.getGetterType(reflectorFactory, Person.class, "missing"));
+  }
+
+  @Test
+  void typesAreCachedPerParameterType() {
+    assertSame(Integer.class, cache.getGetterType(reflectorFactory, Person.class, "id"));
+    assertSame(String.class, cache.getGetterType(reflectorFactory, Company.class, "id"));
+    assertSame(Integer.class, cache.getGetterType(reflectorFactory, Person.class, "id"));
+    assertEquals(String.class, cache.getGetterType(reflectorFactory, Company.class, "address.zipCode"));
+    assertEquals(Object.class, cache.getGetterType(reflectorFactory, Company.class, "addresses"));
+  }
+
+  public static class Person {
+
+    private Integer id;
+    private Address address;
+    private List<Address> addresses;
+    private Map<String, Integer> scores;
+
+    public Integer getId() {
+      return id;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+    public List<Address> getAddresses() {
+      return addresses;
+    }
+
+    public Map<String, Integer> getScores() {
+      return scores;
+    }
+
+  }
+
+  public static class Company {
+
+    private String id;
+    private Address address;
+
+    public String getId() {
+      return id;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+  }
+
+  public static class Address {
+
+    private String zipCode;
+
+    public String getZipCode() {
+      return zipCode;
+    }
+
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -138,4 +138,50 @@ class InDirectiveTest {
     assertEquals(3, result.split("OR").length - 1);
   }
 
+  @Test
+  void paddingToPowersOfTwo() {
+    VelocityEngine engine = newPaddingEngine("pow2");
+    assertEquals(1, countPlaceholders(engine, 1));
+    assertEquals(4, countPlaceholders(engine, 3));
+    assertEquals(4, countPlaceholders(engine, 4));
+    assertEquals(8, countPlaceholders(engine, 5));
+    assertEquals(2048, countPlaceholders(engine, 1025));
+  }
+
+  @Test
+  void paddingToListedSizes() {
+    VelocityEngine engine = newPaddingEngine("100, 10");
+    assertEquals(10, countPlaceholders(engine, 1));
+    assertEquals(10, countPlaceholders(engine, 10));
+    assertEquals(100, countPlaceholders(engine, 11));
+    assertEquals(300, countPlaceholders(engine, 250));
+  }
+
+  @Test
+  void paddingRepeatsLastItem() {
+    VelocityEngine engine = newPaddingEngine("pow2");
+    StringWriter w = new StringWriter();
+    ctxt.put("list", Arrays.asList("a", "b", "c"));
+    engine.evaluate(ctxt, w, "TEST", "#in($list $id 'id')'$id'#end");
+    assertEquals("((id IN ('a', 'b', 'c', 'c')))", w.toString());
+  }
+
+  private static VelocityEngine newPaddingEngine(String padding) {
+    Properties p = new Properties();
+    p.setProperty(RuntimeConstants.CUSTOM_DIRECTIVES, InDirective.class.getName());
+    p.setProperty(InDirective.PADDING_PROPERTY, padding);
+    VelocityEngine engine = new VelocityEngine();
+    engine.init(p);
+    return engine;
+  }
+
+  private static int countPlaceholders(VelocityEngine engine, int size) {
+    StringWriter w = new StringWriter();
+    String[] arr = new String[size];
+    Arrays.fill(arr, "?");
+    ctxt.put("list", Arrays.asList(arr));
+    engine.evaluate(ctxt, w, "TEST", "#in($list $id 'id')?#end");
+    return w.toString().split("\\?", -1).length - 1;
+  }
+
 }
@@ -0,0 +1,110 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.velocity.Template;
+import org.junit.jupiter.api.Test;
+
+class IntrospectionWarmUpTest {
+
+  private final Configuration configuration = new Configuration();
+
+  private final VelocityFacade facade = new VelocityFacade(
+      VelocityLanguageDriverConfig.newInstance(c -> c.setWarmUpIntrospection(true)));
+
+  @Test
+  void uberspectResolvesProperties() {
+    WarmUpUberspect uberspect = facade.getWarmUpUberspect();
+    assertNotNull(uberspect);
+    assertEquals(String.class, uberspect.warmUp(Person.class, "lastName"));
+    assertEquals(Address.class, uberspect.warmUp(Person.class, "address"));
+    assertEquals(boolean.class, uberspect.warmUp(Person.class, "active"));
+    assertEquals(Object.class, uberspect.warmUp(Map.class, "anything"));
+    assertNull(uberspect.warmUp(Person.class, "lastname"));
+    assertNull(new VelocityFacade(VelocityLanguageDriverConfig.newInstance()).getWarmUpUberspect());
+  }
+
+  @Test
+  void misspelledPropertiesAreReported() {
+    Set<String> problems = warmUp(Person.class,
+        "SELECT * FROM person WHERE #if($_parameter.active)active#end #if($_parameter.adress)1#end"
+            + " AND city = $_parameter.address.city AND zip = $_parameter.address.zipCode"
+            + " AND last_name = @{lastname} AND id IN #repeat($_parameter.ids $id ', ' '(' ')')@{id}#end"
+            + " #set($x = 1) AND x = @{x} AND db = @{_databaseId}");
+    assertEquals(3, problems.size(), problems.toString());
+    List<String> list = Arrays.asList(problems.toArray(new String[0]));
+    assertTrue(list.get(0).startsWith("'adress' is not a property of " + Person.class.getName()
+        + " ($_parameter.adress at line 1, column "), list.get(0));
+    assertTrue(list.get(1).startsWith("'zipCode' is not a property of " + Address.class.getName()), list.get(1));
+    assertEquals("'lastname' is not a property of " + Person.class.getName()
+        + " (@{lastname}), did you mean 'lastName'?", list.get(2));
+  }
+
+  @Test
+  void dynamicParametersAreNotChecked() {
+    assertTrue(warmUp(Map.class, "SELECT $_parameter.anything WHERE a = @{anything}").isEmpty());
+    assertTrue(warmUp(Object.class, "SELECT $_parameter.anything WHERE a = @{anything}").isEmpty());
+    assertTrue(warmUp(Integer.class, "SELECT * FROM person WHERE id = @{id}").isEmpty());
+  }
+
+  private Set<String> warmUp(Class<?> parameterType, String script) {
+    ParameterMappingSourceParser parser = new ParameterMappingSourceParser(configuration, script, parameterType,
+        new GetterTypeCache());
+    PropertyPaths propertyPaths = new PropertyPaths(parser.getParameterMappingSources());
+    Template template = facade.parseTemplate(parser.getSql(), "warm-up");
+    return IntrospectionWarmUp.warmUp(facade, configuration, parameterType, propertyPaths, template);
+  }
+
+  public static class Person {
+
+    public String getLastName() {
+      return null;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+
+    public Address getAddress() {
+      return null;
+    }
+
+    public List<Integer> getIds() {
+      return null;
+    }
+
+  }
+
+  public static class Address {
+
+    public String getCity() {
+      return null;
+    }
+
+  }
+
+}
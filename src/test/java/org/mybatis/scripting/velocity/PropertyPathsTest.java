@@ -0,0 +1,50 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class PropertyPathsTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void propertiesAreSplitIntoRootAndPath() {
+    PropertyPaths paths = paths("a.b[0].c", "a[0]", ParameterMappingCollector.ITEM_PREFIX + "3.x", "id");
+    assertArrayEquals(new String[] { "a", "a[0]", "_RPTITEM_3", "id" }, paths.roots);
+    assertArrayEquals(new String[] { ".b[0].c", "", ".x", "" }, paths.paths);
+    assertArrayEquals(new String[] { "a", "a", "_RPTITEM_3", "id" }, paths.names);
+  }
+
+  @Test
+  void referencedPropertiesUseTheRoots() {
+    PropertyPaths paths = paths("a.b[0].c", "a[0]", ParameterMappingCollector.ITEM_PREFIX + "3.x", "id");
+    assertArrayEquals(new String[] { "a", "id" }, ParameterShape.referencedProperties(paths, null));
+  }
+
+  private PropertyPaths paths(String... properties) {
+    ParameterMapping[] mappings = new ParameterMapping[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      mappings[i] = new ParameterMapping.Builder(configuration, properties[i], Object.class).build();
+    }
+    return new PropertyPaths(mappings);
+  }
+
+}
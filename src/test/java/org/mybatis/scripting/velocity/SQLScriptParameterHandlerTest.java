@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class SQLScriptParameterHandlerTest {
+
+  private final Configuration configuration = new Configuration();
+  private final VelocityLanguageDriver driver = new VelocityLanguageDriver();
+  private final Map<String, Object> param = new HashMap<>();
+
+  @Test
+  void capturedValuesAreBound() throws SQLException {
+    BoundSql boundSql = render();
+    // Changed after the render, the captured values are still bound
+    param.put("id", 2);
+    assertEquals(values(1, "Flintstone"), bind(param, boundSql));
+  }
+
+  @Test
+  void plainMappingsAreResolvedAtBindTime() throws SQLException {
+    BoundSql rendered = render();
+    BoundSql boundSql = new BoundSql(configuration, rendered.getSql(), new ArrayList<>(rendered.getParameterMappings()),
+        param);
+    param.put("id", 2);
+    assertEquals(values(2, "Flintstone"), bind(param, boundSql));
+  }
+
+  @Test
+  void resizedMappingsAreResolvedAtBindTime() throws SQLException {
+    BoundSql boundSql = render();
+    // e.g. a plugin that adds a parameter
+    boundSql.getParameterMappings().add(boundSql.getParameterMappings().get(0));
+    param.put("id", 2);
+    assertEquals(values(2, "Flintstone", 2), bind(param, boundSql));
+  }
+
+  @Test
+  void otherParameterObjectIsResolvedAtBindTime() throws SQLException {
+    BoundSql boundSql = render();
+    Map<String, Object> other = new HashMap<>();
+    other.put("id", 3);
+    other.put("name", "Rubble");
+    assertEquals(values(3, "Rubble"), bind(other, boundSql));
+  }
+
+  private BoundSql render() {
+    param.put("id", 1);
+    param.put("name", "Flintstone");
+    return driver
+        .createSqlSource(configuration, "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end"
+            + " AND lastName = @{name}#end", Map.class)
+        .getBoundSql(param);
+  }
+
+  private Map<Integer, Object> bind(Object parameterObject, BoundSql boundSql) throws SQLException {
+    MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "names.find",
+        parameter -> boundSql, SqlCommandType.SELECT).build();
+    Map<Integer, Object> bound = new HashMap<>();
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+          if (method.getName().startsWith("set") && args != null && args.length >= 2) {
+            bound.put((Integer) args[0], args[1]);
+          }
+          return null;
+        });
+    driver.createParameterHandler(mappedStatement, parameterObject, boundSql).setParameters(ps);
+    return bound;
+  }
+
+  private static Map<Integer, Object> values(Object... values) {
+    Map<Integer, Object> map = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      map.put(i + 1, values[i]);
+    }
+    return map;
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SQLWriterTest {
+
+  @Test
+  void trimmedString() {
+    SQLWriter w = new SQLWriter(4);
+    w.write("\n  id IN (");
+    w.append('?').append(", ?").append("x), ", 1, 3);
+    w.write(new char[] { ' ', '\t' }, 0, 2);
+    assertEquals("id IN (?, ?), ", w.toString().substring(3, 17));
+    assertEquals("id IN (?, ?),", w.toTrimmedString());
+  }
+
+  @Test
+  void blankIsEmpty() {
+    SQLWriter w = new SQLWriter(0);
+    w.write(" \r\n\t ");
+    assertEquals("", w.toTrimmedString());
+  }
+
+  @Test
+  void replaceInPlace() {
+    SQLWriter w = new SQLWriter(0);
+    w.write("x   AND a = 1");
+    w.replace(1, 8, "WHERE", ' ');
+    assertEquals("xWHERE a = 1", w.toString());
+    w.replace(1, 1, "(", ' ');
+    assertEquals("x( WHERE a = 1", w.toString());
+    w.setLength(3);
+    assertEquals("x( ", w.toString());
+  }
+
+  @Test
+  void sizeHintFollowsOutputs() {
+    OutputSizeHint hint = new OutputSizeHint(16);
+    assertEquals(16, hint.capacity());
+    for (int i = 0; i < 3; i++) {
+      hint.record(1000);
+    }
+    assertTrue(hint.capacity() >= 1000);
+    hint.record(10);
+    assertTrue(hint.capacity() > 800);
+    for (int i = 0; i < 100; i++) {
+      hint.record(10);
+    }
+    assertEquals(16, hint.capacity());
+  }
+
+  @Test
+  void sizeHintIsBoundedByOutliers() {
+    OutputSizeHint hint = new OutputSizeHint(16);
+    for (int i = 0; i < 10; i++) {
+      hint.record(1000);
+    }
+    // One outlier grows the hint by 4 times at most
+    hint.record(10_000_000);
+    assertTrue(hint.capacity() <= 4 * 1000 + 4 * 1000 / 16, String.valueOf(hint.capacity()));
+    for (int i = 0; i < 20; i++) {
+      hint.record(10_000_000);
+    }
+    assertEquals(OutputSizeHint.MAX_CAPACITY, hint.capacity());
+  }
+
+}
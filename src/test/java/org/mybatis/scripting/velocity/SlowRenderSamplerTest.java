@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class SlowRenderSamplerTest {
+
+  @Test
+  void keepsMostRecentSamples() {
+    SlowRenderSampler sampler = new SlowRenderSampler(5, 3);
+    assertFalse(sampler.isSlow(4_999_999));
+    assertTrue(sampler.isSlow(5_000_000));
+    for (int i = 0; i < 5; i++) {
+      sampler.record("statement" + i, 5_000_000 + i, 10, 1, "Integer");
+    }
+    List<SlowRender> samples = sampler.getSamples();
+    assertEquals(Arrays.asList("statement4", "statement3", "statement2"),
+        samples.stream().map(SlowRender::getStatement).collect(Collectors.toList()));
+    assertEquals(5_000_004, samples.get(0).getElapsedNanos());
+    assertEquals(5, sampler.getSampleCount());
+    sampler.clear();
+    assertTrue(sampler.getSamples().isEmpty());
+  }
+
+  @Test
+  void slowRenderIsSampledWithParameterShape() {
+    VelocityLanguageDriver driver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> c.setSlowRenderThreshold(1)));
+    String script = "SELECT * FROM names WHERE #if($_parameter.name)name = @{name} AND #end"
+        + "id IN #repeat($_parameter.ids $id ', ' '(' ')')@{id}#end";
+    SqlSource sqlSource = driver.createSqlSource(new Configuration(), script, SlowParameter.class);
+    sqlSource.getBoundSql(new SlowParameter(null, Arrays.asList(1, 2, 3)));
+
+    List<SlowRender> samples = driver.getSlowRenderSampler().getSamples();
+    assertEquals(1, samples.size());
+    SlowRender sample = samples.get(0);
+    assertTrue(sample.getElapsedNanos() >= 1_000_000);
+    assertEquals(3, sample.getParameterCount());
+    assertTrue(sample.getParameterShape().startsWith("SlowParameter{name=null, ids="), sample.getParameterShape());
+    assertTrue(sample.getParameterShape().endsWith("[3]}"), sample.getParameterShape());
+    assertFalse(sample.getParameterShape().contains("id="), sample.getParameterShape());
+  }
+
+  @Test
+  void translatedTemplateIsSampledWithParameterShape() {
+    VelocityLanguageDriver driver = new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> {
+      c.setSlowRenderThreshold(1);
+      c.setRenderCompileThreshold(1);
+    }), Runnable::run);
+    String script = "SELECT * FROM names WHERE id IN #repeat($_parameter.ids $id ', ' '(' ')')@{id}#end";
+    SqlSource sqlSource = driver.createSqlSource(new Configuration(), script, SlowParameter.class);
+    // The first render translates the template
+    sqlSource.getBoundSql(new SlowParameter(null, Arrays.asList(1, 2, 3)));
+    sqlSource.getBoundSql(new SlowParameter(null, Arrays.asList(1, 2)));
+
+    List<SlowRender> samples = driver.getSlowRenderSampler().getSamples();
+    assertEquals(2, samples.size());
+    for (SlowRender sample : samples) {
+      assertTrue(sample.getParameterShape().startsWith("SlowParameter{ids="), sample.getParameterShape());
+      assertTrue(sample.getParameterShape().endsWith("]}"), sample.getParameterShape());
+    }
+  }
+
+  @Test
+  void parameterShapeHasNoValues() {
+    Configuration configuration = new Configuration();
+    Map<String, Object> param = new HashMap<>();
+    param.put("name", "secret");
+    param.put("ids", new int[] { 1, 2 });
+    param.put("options", Collections.singletonMap("a", "b"));
+    assertEquals("HashMap{name=String, ids=int[2], options=SingletonMap[1], missing=null}",
+        ParameterShape.describe(configuration, param, new String[] { "name", "ids", "options", "missing" }));
+    assertEquals("Integer", ParameterShape.describe(configuration, 42, new String[] { "id" }));
+    assertEquals("null", ParameterShape.describe(configuration, null, new String[0]));
+  }
+
+  public static class SlowParameter {
+
+    private final String name;
+    private final List<Integer> ids;
+
+    SlowParameter(String name, List<Integer> ids) {
+      this.name = name;
+      this.ids = ids;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public List<Integer> getIds() {
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ids;
+    }
+
+  }
+
+}
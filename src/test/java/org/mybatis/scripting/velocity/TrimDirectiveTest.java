@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,12 +17,16 @@ package org.mybatis.scripting.velocity;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Locale;
 import java.util.Properties;
 
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.parser.node.Node;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -107,4 +111,102 @@ class TrimDirectiveTest {
     assertEquals("pre --- pos", result);
   }
 
+  @Test
+  void overridesIgnoreCase() {
+    StringWriter w = new StringWriter();
+    velocity.evaluate(c, w, "TEST", "#trim('WHERE', 'AND |OR ', '', ' AND| OR') and a = 1 Or #end");
+    String result = w.toString();
+    assertEquals("WHERE a = 1 ", result);
+  }
+
+  @Test
+  void referenceArgumentsAreResolvedOnEveryRender() {
+    String template = "#trim($prefix, 'x') x SIMPLE #end";
+    StringWriter w = new StringWriter();
+    c.put("prefix", "WHERE");
+    velocity.evaluate(c, w, "TEST", template);
+    c.put("prefix", "HAVING");
+    velocity.evaluate(c, w, "TEST", template);
+    c.remove("prefix");
+    assertEquals("WHERE  SIMPLE HAVING  SIMPLE ", w.toString());
+  }
+
+  @Test
+  void nestedInPlace() {
+    String template = "x#trim('WHERE', 'AND ') AND a = 1 #trim('(', 'OR ', ')') OR b = 2 #end #trim('Z')  #end #end";
+    SQLWriter sw = new SQLWriter(0);
+    velocity.evaluate(c, sw, "TEST", template);
+    StringWriter w = new StringWriter();
+    velocity.evaluate(c, w, "TEST", template);
+    assertEquals("xWHERE a = 1 ( b = 2 ) ", sw.toString());
+    assertEquals(sw.toString(), w.toString());
+  }
+
+  @Test
+  void stoppedBlockIsDiscarded() {
+    String template = "x#foreach($i in [1..2])#trim('WHERE', 'AND ') AND a = $i #break($foreach) #end#end";
+    SQLWriter sw = new SQLWriter(0);
+    velocity.evaluate(c, sw, "TEST", template);
+    StringWriter w = new StringWriter();
+    velocity.evaluate(c, w, "TEST", template);
+    assertEquals("x", sw.toString());
+    assertEquals(sw.toString(), w.toString());
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void sharedParamsAreImmutable() throws IOException {
+    TrimDirective.Params params = WhereDirective.PARAMS.withBody(" AND a = 1 ");
+    assertEquals("AND a = 1", params.getBody());
+    assertEquals("", WhereDirective.PARAMS.getBody());
+    WhereDirective.PARAMS.getPrefixOverrides().add("A");
+    assertEquals("AND ", WhereDirective.PARAMS.getPrefixOverrides().start().data);
+    StringWriter w = new StringWriter();
+    new TrimDirective().render(params, w);
+    assertEquals("WHERE a = 1 ", w.toString());
+    assertEquals("SET", SetDirective.PARAMS.getPrefix());
+    assertEquals(",", SetDirective.PARAMS.getSuffixOverrides().start().data);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void mutableParams() throws IOException {
+    TrimDirective.Params params = new TrimDirective.Params();
+    params.setPrefix("WHERE");
+    params.setPrefixOverrides("AND |OR ");
+    params.setSuffix("LIMIT 1");
+    params.setSuffixOverrides(",");
+    params.setBody(" OR a = 1, ");
+    StringWriter w = new StringWriter();
+    new TrimDirective().render(params, w);
+    assertEquals("WHERE a = 1 LIMIT 1", w.toString());
+  }
+
+  @Test
+  void subclassParamsAreResolvedOnEveryRender() {
+    Properties p = new Properties();
+    p.setProperty(RuntimeConstants.CUSTOM_DIRECTIVES, LowerTrimDirective.class.getName());
+    VelocityEngine engine = new VelocityEngine();
+    engine.init(p);
+    StringWriter w = new StringWriter();
+    engine.evaluate(new VelocityContext(), w, "TEST", "#lowertrim('WHERE' 'AND ') AND A = 1 #end");
+    assertEquals("where a = 1 ", w.toString());
+  }
+
+  public static class LowerTrimDirective extends TrimDirective {
+
+    @Override
+    public String getName() {
+      return "lowertrim";
+    }
+
+    @Override
+    protected Params getParams(InternalContextAdapter context, Node node) throws IOException {
+      Params params = super.getParams(context, node);
+      return new Params.Builder().prefix(params.getPrefix().toLowerCase(Locale.ENGLISH)).prefixOverrides("AND ")
+          .body(params.getBody().toLowerCase(Locale.ENGLISH)).build();
+    }
+
+  }
+
 }
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class TrimmingWriterTest {
+
+  @Test
+  void trimsStreamedContent() throws IOException {
+    StringWriter out = new StringWriter();
+    TrimmingWriter w = new TrimmingWriter(out, "(");
+    w.write("\n   ");
+    assertFalse(w.isStarted());
+    assertEquals("", out.toString());
+    w.write(" id = ?");
+    w.write(new char[] { ',', '\n', ' ' }, 0, 3);
+    w.write('?');
+    w.append(" \t");
+    w.write(' ');
+    assertTrue(w.isStarted());
+    assertEquals("(id = ?,\n ?", out.toString());
+    w.write(' ');
+    w.write("x  ", 0, 1);
+    assertEquals("(id = ?,\n ? \t  x", out.toString());
+  }
+
+  @Test
+  void writesNothingForBlankContent() throws IOException {
+    StringWriter out = new StringWriter();
+    TrimmingWriter w = new TrimmingWriter(out, "(");
+    w.write(" \r\n\t ");
+    w.write('\n');
+    assertFalse(w.isStarted());
+    assertEquals("", out.toString());
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -62,7 +62,7 @@ class VelocityLanguageDriverConfigTest {
     Assertions.assertEquals("org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader",
         config.getVelocitySettings().get("resource.loader.class.class"));
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
@@ -79,7 +79,7 @@ class VelocityLanguageDriverConfigTest {
     Assertions.assertEquals("org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader",
         config.getVelocitySettings().get("resource.loader.class.class"));
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
@@ -106,7 +106,7 @@ class VelocityLanguageDriverConfigTest {
     Assertions.assertEquals("20", config.getVelocitySettings().get("directive.foreach.max_loops"));
     Assertions.assertEquals("org.apache.velocity", config.getVelocitySettings().get("runtime.log.name"));
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.use.CustomUserDirective2,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.use.CustomUserDirective2,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
@@ -122,6 +122,15 @@ class VelocityLanguageDriverConfigTest {
         "attribute1 : attribute1Value , attribute2 : attribute2Value");
     properties.setProperty("directive.foreach.max_loops", "30");
     properties.setProperty("runtime.log.name", "org.apache.velocity");
+    properties.setProperty("compile-mode", "lazy");
+    properties.setProperty("validate-templates", "true");
+    properties.setProperty("render-compile-threshold", "100");
+    properties.setProperty("compile-cache-size", "500");
+    properties.setProperty("render-listeners", "org.mybatis.scripting.velocity.RenderMetrics");
+    properties.setProperty("render-metrics", "true");
+    properties.setProperty("render-metrics-jmx-name", "app");
+    properties.setProperty("slow-render-threshold", "50");
+    properties.setProperty("warm-up-introspection", "true");
     VelocityLanguageDriverConfig config = VelocityLanguageDriverConfig.newInstance(properties);
     @SuppressWarnings("deprecation")
     String[] userDirectives = config.getUserdirective();
@@ -142,8 +151,19 @@ class VelocityLanguageDriverConfigTest {
     Assertions.assertEquals("200", config.getVelocitySettings().get("resource.manager.cache.default_size"));
     Assertions.assertEquals("30", config.getVelocitySettings().get("directive.foreach.max_loops"));
     Assertions.assertEquals("org.apache.velocity", config.getVelocitySettings().get("runtime.log.name"));
+    Assertions.assertEquals(VelocityLanguageDriverConfig.CompileMode.LAZY, config.getCompileMode());
+    Assertions.assertTrue(config.isValidateTemplates());
+    Assertions.assertEquals(100, config.getRenderCompileThreshold());
+    Assertions.assertEquals(500, config.getCompileCacheSize());
+    Assertions.assertArrayEquals(new String[] { "org.mybatis.scripting.velocity.RenderMetrics" },
+        config.getRenderListeners());
+    Assertions.assertTrue(config.isRenderMetrics());
+    Assertions.assertEquals("app", config.getRenderMetricsJmxName());
+    Assertions.assertEquals(50, config.getSlowRenderThreshold());
+    Assertions.assertEquals(100, config.getSlowRenderSamples());
+    Assertions.assertTrue(config.isWarmUpIntrospection());
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
@@ -166,7 +186,7 @@ class VelocityLanguageDriverConfigTest {
     Assertions.assertEquals("20", config.getVelocitySettings().get("directive.foreach.max_loops"));
     Assertions.assertEquals("org.apache.velocity", config.getVelocitySettings().get("runtime.log.name"));
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
@@ -180,7 +200,7 @@ class VelocityLanguageDriverConfigTest {
         config.getVelocitySettings().get("resource.loader.class.class"));
     Assertions.assertEquals("Windows-31J", config.getVelocitySettings().get("resource.default_encoding"));
     Assertions.assertEquals(
-        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective",
+        "org.mybatis.scripting.velocity.use.CustomUserDirective,org.mybatis.scripting.velocity.TrimDirective,org.mybatis.scripting.velocity.WhereDirective,org.mybatis.scripting.velocity.SetDirective,org.mybatis.scripting.velocity.InDirective,org.mybatis.scripting.velocity.RepeatDirective,org.mybatis.scripting.velocity.ValuesDirective",
         config.generateCustomDirectivesString());
   }
 
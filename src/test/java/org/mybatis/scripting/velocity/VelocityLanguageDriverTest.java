@@ -0,0 +1,445 @@
+/*
+ *    Copyright 2012-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.mybatis.scripting.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XPathParser;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.jupiter.api.Test;
+
+class VelocityLanguageDriverTest {
+
+  private final VelocityLanguageDriver driver = new VelocityLanguageDriver();
+
+  @Test
+  void staticScript() {
+    SqlSource sqlSource = driver.createSqlSource(new Configuration(),
+        "SELECT * FROM names WHERE id = @{id} AND lastName = @{name, jdbcType=VARCHAR}", Map.class);
+    assertTrue(sqlSource instanceof StaticScriptSource);
+
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("name", "Flintstone");
+    BoundSql boundSql = sqlSource.getBoundSql(param);
+    assertEquals("SELECT * FROM names WHERE id = ? AND lastName = ?", boundSql.getSql());
+    assertEquals(2, boundSql.getParameterMappings().size());
+    assertEquals("id", boundSql.getParameterMappings().get(0).getProperty());
+    assertEquals("name", boundSql.getParameterMappings().get(1).getProperty());
+    assertEquals(param, boundSql.getAdditionalParameter(SQLScriptSource.PARAMETER_OBJECT_KEY));
+  }
+
+  @Test
+  void dynamicScript() {
+    assertTrue(driver.createSqlSource(new Configuration(), "SELECT * FROM names WHERE id = ${id}",
+        Map.class) instanceof SQLScriptSource);
+    assertTrue(driver.createSqlSource(new Configuration(), "SELECT * FROM names #where() id = @{id} #end",
+        Map.class) instanceof SQLScriptSource);
+    assertTrue(driver.createSqlSource(new Configuration(), "SELECT * FROM names ## comment",
+        Map.class) instanceof SQLScriptSource);
+  }
+
+  @Test
+  void itemizedMappingsAreDerivedFromTheirSource() {
+    SqlSource sqlSource = driver.createSqlSource(new Configuration(),
+        "SELECT * FROM names WHERE #in($_parameter.names $name 'id') @{name.id, jdbcType=INTEGER} #end", Map.class);
+    Map<String, Object> param = Collections.singletonMap("names",
+        Arrays.asList(Collections.singletonMap("id", 1), Collections.singletonMap("id", 2)));
+
+    List<ParameterMapping> first = sqlSource.getBoundSql(param).getParameterMappings();
+    List<ParameterMapping> second = sqlSource.getBoundSql(param).getParameterMappings();
+    assertEquals(2, first.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertEquals("_RPTITEM_" + i + ".id", first.get(i).getProperty());
+      assertSame(JdbcType.INTEGER, first.get(i).getJdbcType());
+      assertSame(first.get(0).getTypeHandler(), first.get(i).getTypeHandler());
+      assertSame(first.get(i).getTypeHandler(), second.get(i).getTypeHandler());
+    }
+  }
+
+  @Test
+  void shapeCache() {
+    shapeCache(new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> c.setShapeCacheSize(16))));
+  }
+
+  @Test
+  void shapeCacheOfTranslatedTemplate() {
+    // The first render translates the template, the next renders are captured from the translated template
+    shapeCache(new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> {
+      c.setShapeCacheSize(16);
+      c.setRenderCompileThreshold(1);
+    }), Runnable::run));
+  }
+
+  private void shapeCache(VelocityLanguageDriver shapeDriver) {
+    Configuration configuration = new Configuration();
+    String script = "SELECT * FROM names WHERE #in($_parameter.ids $id 'id')@{id}#end"
+        + "#if($_parameter.name) AND lastName = @{name}#end";
+    SqlSource interpreted = driver.createSqlSource(configuration, script, Map.class);
+    SqlSource cached = shapeDriver.createSqlSource(configuration, script, Map.class);
+
+    Object[][] params = { { null, Arrays.asList(1, 2, 3) }, { "Flintstone", Arrays.asList(4, 5, 6) },
+        { null, Arrays.asList(7, 8, 9) }, { "Rubble", Arrays.asList(1, 2, 3) }, { "Rubble", Arrays.asList(1) } };
+    for (Object[] values : params) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("name", values[0]);
+      param.put("ids", values[1]);
+      BoundSql expected = interpreted.getBoundSql(param);
+      BoundSql actual = cached.getBoundSql(param);
+      assertEquals(expected.getSql(), actual.getSql());
+      assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+      for (int i = 0; i < expected.getParameterMappings().size(); i++) {
+        String property = expected.getParameterMappings().get(i).getProperty();
+        assertEquals(property, actual.getParameterMappings().get(i).getProperty());
+        if (expected.hasAdditionalParameter(property)) {
+          assertEquals(expected.getAdditionalParameter(property), actual.getAdditionalParameter(property));
+        }
+      }
+    }
+  }
+
+  @Test
+  void inWithArrayBinding() {
+    SqlSource sqlSource = driver.createSqlSource(new Configuration(),
+        "SELECT * FROM names WHERE #in($_parameter.ids $id 'id' 'array')@{id}#end", Map.class);
+
+    BoundSql boundSql = sqlSource.getBoundSql(Collections.singletonMap("ids", Arrays.asList(1, 2, 3)));
+    assertEquals("SELECT * FROM names WHERE (id = ANY(?))", boundSql.getSql().trim());
+    assertEquals(1, boundSql.getParameterMappings().size());
+    String property = boundSql.getParameterMappings().get(0).getProperty();
+    assertArrayEquals(new Integer[] { 1, 2, 3 }, (Integer[]) boundSql.getAdditionalParameter(property));
+
+    boundSql = sqlSource.getBoundSql(Collections.singletonMap("ids", Collections.emptyList()));
+    assertEquals("SELECT * FROM names WHERE ((id NOT IN ( NULL )))", boundSql.getSql().trim());
+  }
+
+  @Test
+  void inWithArrayBindingForDatabaseId() {
+    VelocityLanguageDriver arrayDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig
+        .newInstance(c -> c.getVelocitySettings().put(InDirective.ARRAY_BINDING_PROPERTY, "h2, postgresql")));
+    Configuration configuration = new Configuration();
+    Map<String, Object> param = Collections.singletonMap("names",
+        Arrays.asList(Collections.singletonMap("id", 1), Collections.singletonMap("id", 2)));
+
+    configuration.setDatabaseId("hsqldb");
+    SqlSource sqlSource = arrayDriver.createSqlSource(configuration,
+        "SELECT * FROM names WHERE #in($_parameter.names $name 'id')@{name.id}#end", Map.class);
+    assertEquals("SELECT * FROM names WHERE ((id IN (?, ?)))", sqlSource.getBoundSql(param).getSql().trim());
+
+    configuration.setDatabaseId("postgresql");
+    BoundSql boundSql = sqlSource.getBoundSql(param);
+    assertEquals("SELECT * FROM names WHERE (id = ANY(?))", boundSql.getSql().trim());
+    String property = boundSql.getParameterMappings().get(0).getProperty();
+    assertArrayEquals(new Integer[] { 1, 2 }, (Integer[]) boundSql.getAdditionalParameter(property));
+
+    sqlSource = arrayDriver.createSqlSource(configuration,
+        "SELECT * FROM names WHERE #in($_parameter.names $name 'id' 'expand')@{name.id}#end", Map.class);
+    assertEquals("SELECT * FROM names WHERE ((id IN (?, ?)))", sqlSource.getBoundSql(param).getSql().trim());
+  }
+
+  @Test
+  void valuesWithParameterBudget() {
+    VelocityLanguageDriver valuesDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig
+        .newInstance(c -> c.getVelocitySettings().put(ValuesDirective.MAX_PARAMETERS_PROPERTY + ".sqlserver", "5")));
+    Configuration configuration = new Configuration();
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", 1);
+    row.put("name", "a");
+    Map<String, Object> param = Collections.singletonMap("rows", Arrays.asList(row, row, row));
+    SqlSource sqlSource = valuesDriver.createSqlSource(configuration,
+        "INSERT INTO names (id, name) #values($_parameter.rows $row)@{row.id}, @{row.name}#end", Map.class);
+
+    BoundSql boundSql = sqlSource.getBoundSql(param);
+    assertEquals("INSERT INTO names (id, name) VALUES (?, ?), (?, ?), (?, ?)", boundSql.getSql().trim());
+    assertEquals(6, boundSql.getParameterMappings().size());
+
+    configuration.setDatabaseId("sqlserver");
+    RuntimeException e = assertThrows(RuntimeException.class, () -> sqlSource.getBoundSql(param));
+    Throwable cause = e;
+    while (cause.getCause() != null && !cause.getMessage().contains("#values")) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause.getMessage().contains("split the collection into batches of at most 2 rows"), cause.getMessage());
+
+    Map<String, Object> noRows = Collections.singletonMap("rows", Collections.emptyList());
+    e = assertThrows(RuntimeException.class, () -> sqlSource.getBoundSql(noRows));
+    cause = e;
+    while (cause.getCause() != null && !cause.getMessage().contains("#values")) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause.getMessage().contains("the collection is empty at velocity-template-"), cause.getMessage());
+  }
+
+  @Test
+  void valuesWithTrailingParameters() {
+    VelocityLanguageDriver valuesDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig
+        .newInstance(c -> c.getVelocitySettings().put(ValuesDirective.MAX_PARAMETERS_PROPERTY + ".sqlserver", "4")));
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("sqlserver");
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", 1);
+    row.put("name", "a");
+    Map<String, Object> param = new HashMap<>();
+    param.put("rows", Arrays.asList(row, row));
+    param.put("tag", "t");
+    SqlSource sqlSource = valuesDriver.createSqlSource(configuration,
+        "INSERT INTO names (id, name) #values($_parameter.rows $row)@{row.id}, @{row.name}#end"
+            + " #if($_parameter.tag)ON CONFLICT DO UPDATE SET tag = @{tag}#end",
+        Map.class);
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> sqlSource.getBoundSql(param));
+    Throwable cause = e;
+    while (cause.getCause() != null && !cause.getMessage().contains("#values")) {
+      cause = cause.getCause();
+    }
+    assertTrue(cause.getMessage().contains("needs about 5 bind parameters"), cause.getMessage());
+    assertTrue(cause.getMessage().contains("split the collection into batches of at most 1 rows"), cause.getMessage());
+
+    param.put("rows", Collections.singletonList(row));
+    assertEquals(3, sqlSource.getBoundSql(param).getParameterMappings().size());
+  }
+
+  @Test
+  void valuesWithDefaultParameterBudget() {
+    Configuration configuration = new Configuration();
+    Map<String, Object> param = Collections.singletonMap("ids", Collections.nCopies(1100, 1));
+    SqlSource sqlSource = driver.createSqlSource(configuration,
+        "INSERT INTO names (id, name) #values($_parameter.ids $id)@{id}, 'a'#end", Map.class);
+    assertEquals(1100, sqlSource.getBoundSql(param).getParameterMappings().size());
+
+    configuration.setDatabaseId("postgresql");
+    assertEquals(1100, sqlSource.getBoundSql(param).getParameterMappings().size());
+
+    configuration.setDatabaseId("sqlserver");
+    assertThrows(RuntimeException.class, () -> sqlSource.getBoundSql(Collections.singletonMap("ids",
+        Collections.nCopies(2101, 1))));
+  }
+
+  @Test
+  void lazyCompilation() {
+    VelocityLanguageDriver lazyDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig
+        .newInstance(c -> c.setCompileMode(VelocityLanguageDriverConfig.CompileMode.LAZY)));
+    Configuration configuration = new Configuration();
+    SqlSource sqlSource = lazyDriver.createSqlSource(configuration, "SELECT * FROM names #if(", Map.class);
+    assertThrows(BuilderException.class, () -> sqlSource.getBoundSql(Collections.emptyMap()));
+
+    SqlSource validSqlSource = lazyDriver.createSqlSource(configuration,
+        "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end#end", Map.class);
+    assertEquals("SELECT * FROM names WHERE id = ?",
+        validSqlSource.getBoundSql(Collections.singletonMap("id", 1)).getSql().trim());
+
+    VelocityLanguageDriver validatingDriver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> {
+          c.setCompileMode(VelocityLanguageDriverConfig.CompileMode.LAZY);
+          c.setValidateTemplates(true);
+        }));
+    assertThrows(BuilderException.class,
+        () -> validatingDriver.createSqlSource(configuration, "SELECT * FROM names #if(", Map.class));
+  }
+
+  @Test
+  void parallelCompilation() {
+    List<Runnable> tasks = new ArrayList<>();
+    VelocityLanguageDriver parallelDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig
+        .newInstance(c -> c.setCompileMode(VelocityLanguageDriverConfig.CompileMode.PARALLEL)), tasks::add);
+    Configuration configuration = new Configuration();
+    String script = "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end#end";
+    SqlSource usedFirst = parallelDriver.createSqlSource(configuration, script, Map.class);
+    SqlSource compiledFirst = parallelDriver.createSqlSource(configuration, script, Map.class);
+    assertEquals(2, tasks.size());
+
+    Map<String, Object> param = Collections.singletonMap("id", 1);
+    assertEquals("SELECT * FROM names WHERE id = ?", usedFirst.getBoundSql(param).getSql().trim());
+    tasks.forEach(Runnable::run);
+    assertEquals("SELECT * FROM names WHERE id = ?", usedFirst.getBoundSql(param).getSql().trim());
+    assertEquals("SELECT * FROM names WHERE id = ?", compiledFirst.getBoundSql(param).getSql().trim());
+
+    tasks.clear();
+    SqlSource broken = parallelDriver.createSqlSource(configuration, "SELECT * FROM names #if(", Map.class);
+    assertEquals(1, tasks.size());
+    tasks.forEach(Runnable::run);
+    assertThrows(BuilderException.class, () -> broken.getBoundSql(param));
+
+    VelocityLanguageDriver pooledDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> {
+      c.setCompileMode(VelocityLanguageDriverConfig.CompileMode.PARALLEL);
+      c.setCompileParallelism(2);
+    }));
+    for (int i = 0; i < 10; i++) {
+      SqlSource sqlSource = pooledDriver.createSqlSource(configuration, "/* " + i + " */ " + script, Map.class);
+      assertEquals("/* " + i + " */ SELECT * FROM names WHERE id = ?", sqlSource.getBoundSql(param).getSql().trim());
+    }
+    assertTrue(pooledDriver.hasCompilePool());
+    pooledDriver.close();
+    assertFalse(pooledDriver.hasCompilePool());
+    // A closed driver compiles on the calling thread
+    SqlSource sqlSource = pooledDriver.createSqlSource(configuration, "/* closed */ " + script, Map.class);
+    assertEquals("/* closed */ SELECT * FROM names WHERE id = ?", sqlSource.getBoundSql(param).getSql().trim());
+    assertFalse(pooledDriver.hasCompilePool());
+
+    // The eager mode creates no pool until a template is translated
+    VelocityLanguageDriver eagerDriver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> c.setRenderCompileThreshold(2)));
+    SqlSource eagerSource = eagerDriver.createSqlSource(configuration, script, Map.class);
+    eagerSource.getBoundSql(param);
+    assertFalse(eagerDriver.hasCompilePool());
+    eagerSource.getBoundSql(param);
+    assertTrue(eagerDriver.hasCompilePool());
+    eagerDriver.close();
+  }
+
+  @Test
+  void tieredCompilation() {
+    VelocityFacade facade = driver.getVelocityFacade();
+    assertNotNull(facade.translateTemplate(facade.parseTemplate("SELECT #if($a)1#else 2#end", "supported")));
+    assertNull(facade.translateTemplate(facade.parseTemplate("SELECT $a + 1", "arithmetic")));
+    assertNull(facade.translateTemplate(facade.parseTemplate("#macro(m)1#end SELECT #m()", "macro")));
+
+    VelocityLanguageDriver tieredDriver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> c.setRenderCompileThreshold(1)), Runnable::run);
+    Configuration configuration = new Configuration();
+    String[] scripts = { "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end#end",
+        "#set($ids = $_parameter.ids)SELECT * FROM names WHERE #in($ids $id 'id')@{id}#end",
+        "SELECT * FROM names #foreach($id in $_parameter.ids)#if($foreach.hasNext)$id, #else$id#end#end $missing",
+        "#foreach($id in $_parameter.ids)#set($last = $id)#end SELECT $last #if($_rc_items)$_rc_items#end",
+        "SELECT #foreach($a in $_parameter.ids)#foreach($b in $_parameter.ids)$a$b #end#end FROM names",
+        "SELECT * FROM names ORDER BY $_parameter.order.trim()"
+            + " #trim('LIMIT' '' '' '')#if($_parameter.id > 0) 1#end#end" };
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("ids", Arrays.asList(1, 2, 3));
+    param.put("order", " name ");
+    for (String script : scripts) {
+      SqlSource interpreted = driver.createSqlSource(configuration, script, Map.class);
+      SqlSource tiered = tieredDriver.createSqlSource(configuration, script, Map.class);
+      // The first render translates the template
+      for (int i = 0; i < 2; i++) {
+        BoundSql expected = interpreted.getBoundSql(param);
+        BoundSql actual = tiered.getBoundSql(param);
+        assertEquals(expected.getSql(), actual.getSql());
+        assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+      }
+    }
+  }
+
+  @Test
+  void compileCache() {
+    assertNull(driver.getCompileCacheStats());
+    VelocityLanguageDriver cachingDriver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> c.setCompileCacheSize(10)));
+    Configuration configuration = new Configuration();
+    String script = "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end#end";
+    SqlSource sqlSource = cachingDriver.createSqlSource(configuration, script, Map.class);
+    assertSame(sqlSource, cachingDriver.createSqlSource(configuration, script, Map.class));
+    assertNotSame(sqlSource, cachingDriver.createSqlSource(configuration, script, Object.class));
+    assertNotSame(sqlSource, cachingDriver.createSqlSource(new Configuration(), script, Map.class));
+    assertEquals("SELECT * FROM names WHERE id = ?",
+        sqlSource.getBoundSql(Collections.singletonMap("id", 1)).getSql().trim());
+
+    CompileCacheStats stats = cachingDriver.getCompileCacheStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(3, stats.getMissCount());
+    assertEquals(3, stats.getSize());
+  }
+
+  @Test
+  void renderMetrics() {
+    VelocityLanguageDriver metricsDriver = new VelocityLanguageDriver(
+        VelocityLanguageDriverConfig.newInstance(c -> c.setRenderMetrics(true)));
+    List<String> rendered = new ArrayList<>();
+    metricsDriver.addRenderListener((statement, elapsedNanos, outputLength, parameterCount) -> rendered.add(statement));
+    metricsDriver.addRenderListener((statement, elapsedNanos, outputLength, parameterCount) -> {
+      throw new IllegalStateException("ignored");
+    });
+    Configuration configuration = new Configuration();
+    XNode select = new XPathParser("<mapper namespace=\"names\"><select id=\"find\">"
+        + "SELECT * FROM names #where()#if($_parameter.id)id = @{id}#end#end</select></mapper>")
+        .evalNode("/mapper/select");
+    SqlSource sqlSource = metricsDriver.createSqlSource(configuration, select, Map.class);
+    SqlSource providedSource = metricsDriver.createSqlSource(configuration, "SELECT #if($_parameter)1#end", Map.class);
+    Map<String, Object> param = Collections.singletonMap("id", 1);
+    String sql = sqlSource.getBoundSql(param).getSql();
+    sqlSource.getBoundSql(param);
+    providedSource.getBoundSql(param);
+    metricsDriver.createSqlSource(configuration, "SELECT #if($_parameter)1#end", Map.class).getBoundSql(param);
+    // A static statement is observed too
+    metricsDriver.createSqlSource(configuration, "SELECT * FROM names WHERE id = @{id}", Map.class).getBoundSql(param);
+
+    assertEquals(5, rendered.size());
+    assertEquals(Arrays.asList("names.find", "names.find"), rendered.subList(0, 2));
+    assertEquals(rendered.get(2), rendered.get(3));
+    RenderMetrics metrics = metricsDriver.getRenderMetrics();
+    assertEquals(5, metrics.getRenderCount());
+    RenderStatistics statistics = metrics.getStatistics("names.find");
+    assertEquals(2, statistics.getRenderCount());
+    assertEquals(2, statistics.getTotalParameterCount());
+    assertEquals(2L * sql.length(), statistics.getTotalOutputLength());
+    assertEquals(2, Arrays.stream(statistics.getLatencyHistogram()).sum());
+    assertTrue(statistics.getP99Micros() * 1000 >= statistics.getMaxNanos() / 2);
+    assertEquals(3, metrics.getStatistics().size());
+    metrics.reset();
+    assertEquals(0, metrics.getRenderCount());
+  }
+
+  @Test
+  void renderMetricsMBean() throws Exception {
+    VelocityLanguageDriver metricsDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> {
+      c.setRenderMetricsJmx(true);
+      c.setRenderMetricsJmxName("driverTest");
+    }));
+    metricsDriver.createSqlSource(new Configuration(), "SELECT #if($_parameter)1#end", Map.class)
+        .getBoundSql(Collections.singletonMap("id", 1));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.mybatis.scripting.velocity:type=RenderMetrics,name=driverTest");
+    assertEquals(name, metricsDriver.getRenderMetricsObjectName());
+    assertEquals(1L, server.getAttribute(name, "RenderCount"));
+    assertEquals(1, ((Object[]) server.getAttribute(name, "Statistics")).length);
+
+    // The name is taken until the driver is closed
+    VelocityLanguageDriver otherDriver = new VelocityLanguageDriver(VelocityLanguageDriverConfig.newInstance(c -> {
+      c.setRenderMetricsJmx(true);
+      c.setRenderMetricsJmxName("driverTest");
+    }));
+    assertNull(otherDriver.getRenderMetricsObjectName());
+    metricsDriver.close();
+    assertFalse(server.isRegistered(name));
+  }
+
+}
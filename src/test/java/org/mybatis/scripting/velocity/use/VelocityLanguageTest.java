@@ -1,5 +1,5 @@
 /*
- *    Copyright 2012-2022 the original author or authors.
+ *    Copyright 2012-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mybatis.scripting.velocity.VelocityFacade;
+import org.mybatis.scripting.velocity.VelocityLanguageDriverConfig;
 
 /**
  * Just a test case. Not a real Velocity implementation.
@@ -193,6 +194,23 @@ class VelocityLanguageTest {
     }
   }
 
+  @Test
+  void testDynamicSelectWithIterationOfSameShape() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+
+      for (int[] ids : new int[][] { { 2, 4, 5 }, { 1, 3, 5 }, { 1, 2, 3 } }) {
+        Map<String, int[]> param = new HashMap<>();
+        param.put("ids", ids);
+        List<Name> answer = sqlSession.selectList("org.mybatis.scripting.velocity.use.selectNamesWithIteration", param);
+        assertEquals(3, answer.size());
+        for (int i = 0; i < ids.length; i++) {
+          assertEquals(ids[i], answer.get(i).getId());
+        }
+      }
+
+    }
+  }
+
   @Test
   void testEmptyWhere() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
@@ -358,14 +376,33 @@ class VelocityLanguageTest {
 
   @Test
   void testAdditionalContextAttributes() {
-    Object template = VelocityFacade.compile("SELECT * FROM users WHERE id = ${id}", "test");
+    Object template = VelocityFacade.compile(
+        "SELECT * FROM users WHERE id = ${id} AND name LIKE $trailingWildCardFormatter.formatLiteral($name)", "test");
     Map<String, Object> context = new HashMap<>();
     context.put("id", 123);
+    context.put("name", "a");
     String sql = VelocityFacade.apply(template, context);
-    assertEquals(3, context.size());
-    assertEquals(TrailingWildCardFormatter.class, context.get("trailingWildCardFormatter").getClass());
-    assertEquals(EnumBinder.class, context.get("enumBinder").getClass());
-    assertEquals("SELECT * FROM users WHERE id = 123", sql);
+    assertEquals(2, context.size());
+    assertFalse(context.containsKey("trailingWildCardFormatter"));
+    assertFalse(context.containsKey("enumBinder"));
+    assertEquals("SELECT * FROM users WHERE id = 123 AND name LIKE 'a%'", sql);
+  }
+
+  @Test
+  void testVelocityFacadeInstancesAreIsolated() {
+    VelocityFacade withAttributes = new VelocityFacade(VelocityLanguageDriverConfig.newInstance());
+    VelocityFacade withoutAttributes = new VelocityFacade(
+        VelocityLanguageDriverConfig.newInstance(c -> c.getAdditionalContextAttributes().clear()));
+
+    String script = "SELECT * FROM users WHERE id = ${id}#if($enumBinder) AND 1 = 1#end";
+    Object template = withoutAttributes.compileTemplate(script, "test");
+    Map<String, Object> context = new HashMap<>();
+    context.put("id", 123);
+    assertEquals("SELECT * FROM users WHERE id = 123", withoutAttributes.applyTemplate(template, context));
+
+    template = withAttributes.compileTemplate(script, "test");
+    assertEquals("SELECT * FROM users WHERE id = 123 AND 1 = 1", withAttributes.applyTemplate(template, context));
+    assertEquals(1, context.size());
   }
 
 }